@@ -0,0 +1,98 @@
+package instagram_clone.dtoconverter;
+
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.ContentItemDTO;
+import instagram_clone.model.Content;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.PostStatus;
+import instagram_clone.model.Tag;
+import instagram_clone.model.Vote;
+import instagram_clone.model.VoteType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed conversion of one post. Vote counts are denormalized onto the content,
+ * so the attached vote collection should not change the cost; tags should.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentConverterBenchmark {
+    static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Param({"0", "100", "10000"})
+    int votes;
+
+    @Param({"0", "5", "30"})
+    int tags;
+
+    private Content content;
+
+    @Setup
+    public void setUp() {
+        content = new Content();
+        content.setId(42L);
+        content.setAuthor(UserConverterBenchmark.user(7L));
+        content.setType(ContentType.POST);
+        content.setTitle("Sunset over the harbour");
+        content.setText("Took this one on the way home, the light only lasted a few minutes.");
+        content.setImageHash(HASH);
+        content.setImageSmallHash(HASH);
+        content.setImageMediumHash(HASH);
+        content.setDateTime(LocalDateTime.of(2025, 3, 1, 18, 30));
+        content.setStatus(PostStatus.FIRST_REACTIONS);
+        content.setCommentable(true);
+
+        Set<Vote> voteSet = new HashSet<>();
+        for (int i = 0; i < votes; i++) {
+            Vote vote = new Vote();
+            vote.setId((long) i);
+            vote.setUser(UserConverterBenchmark.user(1000L + i));
+            vote.setContent(content);
+            vote.setType(i % 4 == 0 ? VoteType.DOWN_VOTE : VoteType.UPVOTE);
+            vote.setDateTime(content.getDateTime().plusMinutes(i));
+            voteSet.add(vote);
+        }
+        content.setVotes(voteSet);
+        content.setUpvoteCount((int) voteSet.stream().filter(vote -> vote.getType() == VoteType.UPVOTE).count());
+        content.setDownvoteCount(votes - content.getUpvoteCount());
+
+        Set<Tag> tagSet = new HashSet<>();
+        for (int i = 0; i < tags; i++) {
+            Tag tag = new Tag();
+            tag.setId((long) i);
+            tag.setName("tag" + i);
+            tagSet.add(tag);
+        }
+        content.setTags(tagSet);
+    }
+
+    @Benchmark
+    public ContentDTO toDTO() {
+        return ContentConverter.toDTO(content, ImageSize.SMALL);
+    }
+
+    @Benchmark
+    public ContentItemDTO toItemDTO() {
+        return ContentConverter.toItemDTO(content, ImageSize.SMALL);
+    }
+}
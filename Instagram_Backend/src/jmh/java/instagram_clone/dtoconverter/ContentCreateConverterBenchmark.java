@@ -0,0 +1,86 @@
+package instagram_clone.dtoconverter;
+
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.model.Content;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.User;
+import instagram_clone.service.TagDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parsing of a post's JSON tag list into tag references. Every tag is already
+ * in the warmed dictionary, as for all but the first post using a tag, so no
+ * query runs inside the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentCreateConverterBenchmark {
+    @Param({"0", "5", "30"})
+    int tags;
+
+    private EmbeddedDatabase database;
+    private ContentCreateConverter converter;
+    private ContentCreateDTO dto;
+    private User author;
+
+    @Setup
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        NamedParameterJdbcTemplate jdbcTemplate = new NamedParameterJdbcTemplate(database);
+        jdbcTemplate.getJdbcTemplate().execute(
+                "CREATE TABLE tags (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50) NOT NULL UNIQUE)");
+        for (int i = 0; i < 30; i++) {
+            jdbcTemplate.getJdbcTemplate().update("INSERT INTO tags (name) VALUES (?)", "tag" + i);
+        }
+        TagDictionary tagDictionary = new TagDictionary(jdbcTemplate);
+        tagDictionary.warmUp();
+        converter = new ContentCreateConverter(tagDictionary);
+
+        dto = new ContentCreateDTO();
+        dto.setTitle("Sunset over the harbour");
+        dto.setText("Took this one on the way home, the light only lasted a few minutes.");
+        dto.setContentType(ContentType.POST);
+        dto.setCommentable(true);
+        dto.setImageHash(ContentConverterBenchmark.HASH);
+        dto.setTags(IntStream.range(0, tags)
+                .mapToObj(i -> "\"tag" + i + "\"")
+                .collect(Collectors.joining(",", "[", "]")));
+        author = UserConverterBenchmark.user(7L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public Content toEntity() {
+        return converter.toEntity(dto, author);
+    }
+}
@@ -0,0 +1,58 @@
+package instagram_clone.dtoconverter;
+
+import instagram_clone.dto.AuthorSummaryDTO;
+import instagram_clone.dto.UserDTO;
+import instagram_clone.model.User;
+import instagram_clone.model.UserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserConverterBenchmark {
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = user(7L);
+    }
+
+    @Benchmark
+    public UserDTO toDTO() {
+        return UserConverter.toDTO(user);
+    }
+
+    @Benchmark
+    public AuthorSummaryDTO toSummaryDTO() {
+        return UserConverter.toSummaryDTO(user);
+    }
+
+    static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setRole(UserRole.USER);
+        user.setScore(12.5);
+        user.setBanned(false);
+        user.setFollowerCount(340);
+        user.setAvatarHash(ContentConverterBenchmark.HASH);
+        user.setAvatarSmallHash(ContentConverterBenchmark.HASH);
+        user.setAvatarMediumHash(ContentConverterBenchmark.HASH);
+        return user;
+    }
+}
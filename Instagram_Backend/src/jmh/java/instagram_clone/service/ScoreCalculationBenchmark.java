@@ -0,0 +1,52 @@
+package instagram_clone.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.VoteType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-vote score lookups against the local table, the path every vote takes
+ * once the remote table (if any) is cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreCalculationBenchmark {
+    private ScoreCalculationService scoreCalculationService;
+    // Non-final state fields keep the JIT from folding the lookups into constants
+    private ContentType contentType = ContentType.COMMENT;
+    private VoteType oldType = VoteType.UPVOTE;
+    private VoteType newType = VoteType.DOWN_VOTE;
+
+    @Setup
+    public void setUp() {
+        scoreCalculationService = new ScoreCalculationService(new ObjectMapper(), new SimpleMeterRegistry(),
+                "http://localhost:8001", "local", 500, 60000);
+    }
+
+    @Benchmark
+    public double baseScore() {
+        return scoreCalculationService.baseScore(contentType, newType);
+    }
+
+    @Benchmark
+    public ScoreCalculationService.VoteScoreDelta voteDelta() {
+        return scoreCalculationService.voteDelta(contentType, oldType, newType);
+    }
+}
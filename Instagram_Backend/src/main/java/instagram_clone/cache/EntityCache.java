@@ -0,0 +1,308 @@
+package instagram_clone.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.ContentVotedEvent;
+import instagram_clone.model.Content;
+import instagram_clone.model.Tag;
+import instagram_clone.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Read-through caches of detached snapshots of users, contents and tags.
+ * Snapshots carry scalar fields only (a content's author is an id-only stub)
+ * and are never handed out for modification. Writers evict both immediately
+ * and after commit. With {@code cache.entities.enabled=false} every read goes
+ * straight to the loader.
+ * <p>
+ * Loaders run outside the caches' internal locks: a JDBC call inside a map
+ * compute would pin a virtual thread to its carrier while it waits for a
+ * connection. Concurrent misses on one id may therefore both load it. Every
+ * eviction bumps a generation for its keys first, and a load that overlapped
+ * one is not kept, so a read racing the writing transaction cannot leave the
+ * old row cached.
+ */
+@Component
+public class EntityCache {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int GENERATION_STRIPES = 256;
+
+    private final boolean enabled;
+    private final GuardedCache<User> users;
+    private final GuardedCache<Content> contents;
+    private final GuardedCache<Tag> tags;
+
+    public EntityCache(MeterRegistry meterRegistry,
+                       @Value("${cache.entities.enabled:true}") boolean enabled,
+                       @Value("${cache.entities.max-weight-bytes:33554432}") long maxWeightBytes,
+                       @Value("${cache.entities.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.users = build(maxWeightBytes, ttlSeconds, (Long id, User user) -> ENTRY_OVERHEAD
+                + chars(user.getUsername()) + chars(user.getEmail())
+                + chars(user.getAvatarHash()) + chars(user.getAvatarSmallHash()) + chars(user.getAvatarMediumHash()));
+        this.contents = build(maxWeightBytes, ttlSeconds, (Long id, Content content) -> ENTRY_OVERHEAD
+                + chars(content.getTitle()) + chars(content.getText()) + chars(content.getPath())
+                + content.getTags().stream().mapToInt(tag -> ENTRY_OVERHEAD + chars(tag.getName())).sum());
+        this.tags = build(maxWeightBytes / 8, ttlSeconds, (Long id, Tag tag) -> ENTRY_OVERHEAD + chars(tag.getName()));
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(meterRegistry, users.cache, "users");
+            CaffeineCacheMetrics.monitor(meterRegistry, contents.cache, "contents");
+            CaffeineCacheMetrics.monitor(meterRegistry, tags.cache, "tags");
+        }
+    }
+
+    /**
+     * @param loader returns a snapshot (see {@link #snapshot(User)}) or null when the user does not exist
+     */
+    public User user(Long id, Function<Long, User> loader) {
+        return get(users, id, loader);
+    }
+
+    public Content content(Long id, Function<Long, Content> loader) {
+        return get(contents, id, loader);
+    }
+
+    /**
+     * @param loader returns snapshots of the missing ids that exist
+     */
+    public Map<Long, User> users(Collection<Long> ids, Function<Set<Long>, Map<Long, User>> loader) {
+        return enabled ? users.getAll(ids, loader) : loader.apply(new HashSet<>(ids));
+    }
+
+    public Map<Long, Content> contents(Collection<Long> ids, Function<Set<Long>, Map<Long, Content>> loader) {
+        return enabled ? contents.getAll(ids, loader) : loader.apply(new HashSet<>(ids));
+    }
+
+    public Tag tag(Long id, Function<Long, Tag> loader) {
+        return get(tags, id, loader);
+    }
+
+    public void evictUser(Long id) {
+        evict(users, Set.of(id));
+    }
+
+    public void evictContent(Long id) {
+        evict(contents, Set.of(id));
+    }
+
+    public void evictContents(Collection<Long> ids) {
+        evict(contents, new HashSet<>(ids));
+    }
+
+    /**
+     * Also drops every cached content, since contents carry copies of their tags;
+     * tag renames and deletions are rare enough not to track which ones.
+     */
+    public void evictTag(Long id) {
+        evict(tags, Set.of(id));
+        contents.invalidateEverything();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contents.invalidateEverything();
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener
+    public void onContentVoted(ContentVotedEvent event) {
+        contents.invalidateAll(event.contentIds());
+    }
+
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        contents.invalidateAll(event.contentIds());
+    }
+
+    public static User snapshot(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEmail(user.getEmail());
+        copy.setRole(user.getRole());
+        copy.setScore(user.getScore());
+        copy.setBanned(user.getBanned());
+        copy.setFollowerCount(user.getFollowerCount());
+        copy.setAvatarHash(user.getAvatarHash());
+        copy.setAvatarSmallHash(user.getAvatarSmallHash());
+        copy.setAvatarMediumHash(user.getAvatarMediumHash());
+        return copy;
+    }
+
+    public static Content snapshot(Content content) {
+        return snapshot(content, content.getTags());
+    }
+
+    /**
+     * @param tags the content's tags, for callers that loaded them separately from the entity
+     */
+    public static Content snapshot(Content content, Collection<Tag> tags) {
+        Content copy = copyOf(content);
+        User author = new User();
+        author.setId(content.getAuthor().getId());
+        copy.setAuthor(author);
+        if (content.getParent() != null) {
+            Content parent = new Content();
+            parent.setId(content.getParent().getId());
+            parent.setTitle(content.getParent().getTitle());
+            parent.setText(content.getParent().getText());
+            parent.setType(content.getParent().getType());
+            copy.setParent(parent);
+        }
+        Set<Tag> tagCopies = new HashSet<>();
+        tags.forEach(tag -> tagCopies.add(snapshot(tag)));
+        copy.setTags(tagCopies);
+        return copy;
+    }
+
+    public static Tag snapshot(Tag tag) {
+        Tag copy = new Tag();
+        copy.setId(tag.getId());
+        copy.setName(tag.getName());
+        return copy;
+    }
+
+    /**
+     * Mutable copy of a content snapshot's own fields, sharing its author stub, parent and tags.
+     */
+    public static Content copyOf(Content content) {
+        Content copy = new Content();
+        copy.setId(content.getId());
+        copy.setAuthor(content.getAuthor());
+        copy.setParent(content.getParent());
+        copy.setTags(content.getTags());
+        copy.setType(content.getType());
+        copy.setTitle(content.getTitle());
+        copy.setText(content.getText());
+        copy.setImageHash(content.getImageHash());
+        copy.setImageSmallHash(content.getImageSmallHash());
+        copy.setImageMediumHash(content.getImageMediumHash());
+        copy.setDateTime(content.getDateTime());
+        copy.setStatus(content.getStatus());
+        copy.setUpvoteCount(content.getUpvoteCount());
+        copy.setDownvoteCount(content.getDownvoteCount());
+        copy.setCommentable(content.isCommentable());
+        copy.setPath(content.getPath());
+        copy.setDepth(content.getDepth());
+        return copy;
+    }
+
+    private <V> V get(GuardedCache<V> cache, Long id, Function<Long, V> loader) {
+        return enabled ? cache.get(id, loader) : loader.apply(id);
+    }
+
+    private void evict(GuardedCache<?> cache, Set<Long> ids) {
+        cache.invalidateAll(ids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(ids);
+                }
+            });
+        }
+    }
+
+    private static final class GuardedCache<V> {
+        final Cache<Long, V> cache;
+        private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+        GuardedCache(Cache<Long, V> cache) {
+            this.cache = cache;
+        }
+
+        V get(Long id, Function<Long, V> loader) {
+            V value = cache.getIfPresent(id);
+            if (value == null) {
+                long generation = generation(id);
+                value = loader.apply(id);
+                if (value != null) {
+                    put(id, value, generation);
+                }
+            }
+            return value;
+        }
+
+        Map<Long, V> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, V>> loader) {
+            Map<Long, V> present = cache.getAllPresent(ids);
+            Map<Long, Long> missing = new HashMap<>();
+            for (Long id : ids) {
+                if (!present.containsKey(id)) {
+                    missing.put(id, generation(id));
+                }
+            }
+            Map<Long, V> loaded = missing.isEmpty() ? Map.of() : loader.apply(Set.copyOf(missing.keySet()));
+            loaded.forEach((id, value) -> put(id, value, missing.get(id)));
+
+            Map<Long, V> found = new LinkedHashMap<>();
+            for (Long id : ids) {
+                V value = present.containsKey(id) ? present.get(id) : loaded.get(id);
+                if (value != null) {
+                    found.put(id, value);
+                }
+            }
+            return found;
+        }
+
+        // Checked after the put: an eviction that slipped in between bumped the generation first
+        private void put(Long id, V value, long loadedAt) {
+            cache.put(id, value);
+            if (generation(id) != loadedAt) {
+                cache.invalidate(id);
+            }
+        }
+
+        void invalidateAll(Collection<Long> ids) {
+            ids.forEach(id -> generations.incrementAndGet(stripe(id)));
+            cache.invalidateAll(ids);
+        }
+
+        void invalidateEverything() {
+            for (int i = 0; i < GENERATION_STRIPES; i++) {
+                generations.incrementAndGet(i);
+            }
+            cache.invalidateAll();
+        }
+
+        private long generation(Long id) {
+            return generations.get(stripe(id));
+        }
+
+        private static int stripe(Long id) {
+            return Math.floorMod(Long.hashCode(id), GENERATION_STRIPES);
+        }
+    }
+
+    private static <V> GuardedCache<V> build(long maxWeight, long ttlSeconds, Weigher<Long, V> weigher) {
+        return new GuardedCache<>(Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(weigher)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .<Long, V>build());
+    }
+
+    private static int chars(String value) {
+        return value == null ? 0 : value.length() * 2;
+    }
+}
@@ -1,13 +1,23 @@
 package instagram_clone.controller;
 
+import instagram_clone.dto.CommentNodeDTO;
 import instagram_clone.dto.ContentCreateDTO;
 import instagram_clone.dto.ContentDTO;
 import instagram_clone.dto.ContentUpdateDTO;
+import instagram_clone.dto.CursorPageDTO;
+import instagram_clone.dto.NormalizedPageDTO;
+import instagram_clone.dto.SearchHitDTO;
 import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
 import instagram_clone.model.PostStatus;
 import instagram_clone.model.VoteType;
+import instagram_clone.security.SessionTokenService;
+import instagram_clone.service.CoalescingVoteIngestor;
 import instagram_clone.service.ContentService;
+import instagram_clone.storage.BlobStore;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -17,9 +27,13 @@ import java.util.List;
 @RequestMapping("/contents")
 public class ContentController {
     private final ContentService contentService;
+    private final BlobStore blobStore;
+    private final CoalescingVoteIngestor voteIngestor;
 
-    public ContentController(ContentService contentService) {
+    public ContentController(ContentService contentService, BlobStore blobStore, CoalescingVoteIngestor voteIngestor) {
         this.contentService = contentService;
+        this.blobStore = blobStore;
+        this.voteIngestor = voteIngestor;
     }
 
     @PostMapping(value = "/create", consumes = "multipart/form-data")
@@ -28,11 +42,11 @@ public class ContentController {
             @RequestParam("text") String text,
             @RequestParam("type") String type,
             @RequestParam("isCommentable") boolean isCommentable,
-            @RequestParam("authorId") Long authorId,
             @RequestParam(value = "parentId", required = false) Long parentId,
             @RequestParam(value = "image", required = false) MultipartFile image,
             @RequestParam(value = "tags", required = false) String tags,
-            @RequestParam(value = "status", required = false) String status) {
+            @RequestParam(value = "status", required = false) String status,
+            @AuthenticationPrincipal SessionTokenService.Session session) {
         
         try {
             System.out.println("Received type: " + type);
@@ -41,7 +55,7 @@ public class ContentController {
             contentCreateDTO.setTitle(title);
             contentCreateDTO.setText(text);
             contentCreateDTO.setCommentable(isCommentable);
-            contentCreateDTO.setAuthorId(authorId);
+            contentCreateDTO.setAuthorId(session.userId());
             contentCreateDTO.setParentId(parentId);
             contentCreateDTO.setContentType(ContentType.valueOf(type));
             
@@ -60,7 +74,7 @@ public class ContentController {
             System.out.println("Final status in DTO: " + contentCreateDTO.getStatus());
             
             if (image != null && !image.isEmpty()) {
-                contentCreateDTO.setImage(image.getBytes());
+                contentCreateDTO.setImageHash(blobStore.put(image.getInputStream()));
             }
             
             if (tags != null && !tags.isEmpty()) {
@@ -81,26 +95,108 @@ public class ContentController {
     }
 
     @GetMapping("/get/{id}")
-    public ResponseEntity<ContentDTO> getContentById(@PathVariable Long id) {
-        ContentDTO content = this.contentService.findById(id);
+    public ResponseEntity<ContentDTO> getContentById(
+            @PathVariable Long id,
+            @RequestParam(value = "imageSize", defaultValue = "FULL") ImageSize imageSize) {
+        ContentDTO content = this.contentService.findById(id, imageSize);
         return ResponseEntity.ok(content);
     }
 
     @GetMapping("/posts")
-    public ResponseEntity<List<ContentDTO>> getAllPosts() {
-        List<ContentDTO> posts = this.contentService.findAllPosts();
-        return ResponseEntity.ok(posts);
+    public ResponseEntity<CursorPageDTO<ContentDTO>> getAllPosts(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        try {
+            CursorPageDTO<ContentDTO> page = this.contentService.findPostsPage(limit, cursor, imageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // ?format=normalized lists each author once in a shared map instead of inside every item
+    @GetMapping(value = "/posts", params = "format=normalized")
+    public ResponseEntity<NormalizedPageDTO> getAllPostsNormalized(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        try {
+            return ResponseEntity.ok(this.contentService.findPostsPageNormalized(limit, cursor, imageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/posts/hot")
+    public ResponseEntity<List<ContentDTO>> getHotPosts(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        return ResponseEntity.ok(this.contentService.findHotPosts(limit, imageSize));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageDTO<SearchHitDTO>> search(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        try {
+            return ResponseEntity.ok(this.contentService.search(q, limit, cursor, imageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search/tags")
+    public ResponseEntity<CursorPageDTO<ContentDTO>> searchByTags(
+            @RequestParam(value = "all", defaultValue = "") List<String> all,
+            @RequestParam(value = "any", defaultValue = "") List<String> any,
+            @RequestParam(value = "none", defaultValue = "") List<String> none,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        try {
+            return ResponseEntity.ok(this.contentService.searchByTags(all, any, none, limit, cursor, imageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{postId}/thread")
+    public ResponseEntity<CursorPageDTO<CommentNodeDTO>> getThread(
+            @PathVariable Long postId,
+            @RequestParam(value = "depth", required = false) Integer depth,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "SMALL") ImageSize imageSize) {
+        try {
+            return ResponseEntity.ok(this.contentService.findThread(postId, depth, limit, cursor, imageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/comments/parent/{parentId}")
-    public ResponseEntity<List<ContentDTO>> getCommentsByParent(@PathVariable Long parentId) {
-        List<ContentDTO> comments = this.contentService.findAllCommentsByParentId(parentId);
+    public ResponseEntity<List<ContentDTO>> getCommentsByParent(
+            @PathVariable Long parentId,
+            @RequestParam(value = "imageSize", defaultValue = "SMALL") ImageSize imageSize) {
+        List<ContentDTO> comments = this.contentService.findAllCommentsByParentId(parentId, imageSize);
         return ResponseEntity.ok(comments);
     }
 
+    @GetMapping(value = "/comments/parent/{parentId}", params = "format=normalized")
+    public ResponseEntity<NormalizedPageDTO> getCommentsByParentNormalized(
+            @PathVariable Long parentId,
+            @RequestParam(value = "imageSize", defaultValue = "SMALL") ImageSize imageSize) {
+        return ResponseEntity.ok(this.contentService.findAllCommentsByParentIdNormalized(parentId, imageSize));
+    }
+
     @GetMapping("/posts/author/{authorId}")
-    public ResponseEntity<List<ContentDTO>> getPostsByAuthor(@PathVariable Long authorId) {
-        List<ContentDTO> posts = this.contentService.findPostsByAuthorId(authorId);
+    public ResponseEntity<List<ContentDTO>> getPostsByAuthor(
+            @PathVariable Long authorId,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        List<ContentDTO> posts = this.contentService.findPostsByAuthorId(authorId, imageSize);
         return ResponseEntity.ok(posts);
     }
 
@@ -111,7 +207,11 @@ public class ContentController {
     }
 
     @PutMapping("/update/{id}")
-    public ResponseEntity<ContentDTO> updateContent(@PathVariable Long id, @RequestBody ContentUpdateDTO contentUpdateDTO) {
+    public ResponseEntity<ContentDTO> updateContent(@PathVariable Long id, @RequestBody ContentUpdateDTO contentUpdateDTO,
+                                                    @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(this.contentService.findAuthorId(id))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             ContentDTO content = this.contentService.update(id, contentUpdateDTO);
             return ResponseEntity.ok(content);
@@ -121,15 +221,25 @@ public class ContentController {
     }
 
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<Void> deleteContent(@PathVariable Long id) {
-        this.contentService.deleteById(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Void> deleteContent(@PathVariable Long id,
+                                              @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(this.contentService.findAuthorId(id))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (this.contentService.deleteById(id)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.accepted().build();
     }
 
     @PutMapping("/update-status/{id}")
     public ResponseEntity<ContentDTO> updatePostStatus(
             @PathVariable Long id,
-            @RequestParam("status") String status) {
+            @RequestParam("status") String status,
+            @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(this.contentService.findAuthorId(id))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             PostStatus newStatus = PostStatus.valueOf(status);
             ContentDTO updatedContent = this.contentService.updatePostStatus(id, newStatus);
@@ -142,10 +252,14 @@ public class ContentController {
     @PostMapping("/{contentId}/vote")
     public ResponseEntity<ContentDTO> addVote(
             @PathVariable Long contentId,
-            @RequestParam Long userId,
-            @RequestParam String voteType) {
+            @RequestParam String voteType,
+            @AuthenticationPrincipal SessionTokenService.Session session) {
+        Long userId = session.userId();
         try {
             VoteType type = VoteType.valueOf(voteType);
+            if (voteIngestor.isEnabled()) {
+                return ResponseEntity.accepted().body(voteIngestor.submitVote(contentId, userId, type));
+            }
             ContentDTO content = this.contentService.addVote(contentId, userId, type);
             return ResponseEntity.ok(content);
         } catch (IllegalArgumentException e) {
@@ -159,7 +273,11 @@ public class ContentController {
     @DeleteMapping("/{contentId}/vote")
     public ResponseEntity<ContentDTO> removeVote(
             @PathVariable Long contentId,
-            @RequestParam Long userId) {
+            @AuthenticationPrincipal SessionTokenService.Session session) {
+        Long userId = session.userId();
+        if (voteIngestor.isEnabled()) {
+            return ResponseEntity.accepted().body(voteIngestor.withdrawVote(contentId, userId));
+        }
         ContentDTO content = this.contentService.removeVote(contentId, userId);
         return ResponseEntity.ok(content);
     }
@@ -0,0 +1,81 @@
+package instagram_clone.controller;
+
+import instagram_clone.storage.BlobStore;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/media")
+public class MediaController {
+    private final BlobStore blobStore;
+
+    public MediaController(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @GetMapping("/{hash}")
+    public ResponseEntity<StreamingResponseBody> getMedia(
+            @PathVariable String hash,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) throws IOException {
+        Optional<Path> blob = blobStore.find(hash);
+        if (blob.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Blobs are content-addressed, so the hash is a strong validator and never changes
+        String etag = "\"" + hash + "\"";
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        return stream(blob.get(), etag, cacheControl);
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(Path path, String etag, CacheControl cacheControl) throws IOException {
+        long size = Files.size(path);
+        StreamingResponseBody body = outputStream -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(outputStream);
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentLength(size)
+                .contentType(detectMediaType(path))
+                .body(body);
+    }
+
+    private static MediaType detectMediaType(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            String guessed = URLConnection.guessContentTypeFromStream(in);
+            return guessed != null ? MediaType.parseMediaType(guessed) : MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+}
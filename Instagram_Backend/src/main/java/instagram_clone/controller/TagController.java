@@ -1,5 +1,6 @@
 package instagram_clone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import instagram_clone.dto.TagDTO;
 import instagram_clone.dtoconverter.TagConverter;
 import instagram_clone.model.Tag;
@@ -7,18 +8,19 @@ import instagram_clone.service.TagService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping({"/tags"})
 public class TagController {
     private final TagService tagService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public TagController(TagService tagService) {
+    public TagController(TagService tagService, ObjectMapper objectMapper) {
         this.tagService = tagService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping({"/create"})
@@ -36,12 +38,8 @@ public class TagController {
     }
 
     @GetMapping({"/getAll"})
-    public ResponseEntity<List<TagDTO>> getAllTags() {
-        List<TagDTO> tags = this.tagService.findAll()
-                .stream()
-                .map(TagConverter::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(tags);
+    public ResponseEntity<StreamingResponseBody> getAllTags() {
+        return JsonArrays.stream(objectMapper, this.tagService::streamAll);
     }
 
     @PutMapping({"/update/{id}"})
@@ -1,27 +1,56 @@
 package instagram_clone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.CursorPageDTO;
 import instagram_clone.dto.LoginDTO;
+import instagram_clone.dto.ScoreAdjustmentDTO;
+import instagram_clone.dto.SessionDTO;
 import instagram_clone.dto.UserCreateDTO;
 import instagram_clone.dto.UserDTO;
 import instagram_clone.dtoconverter.UserConverter;
 import instagram_clone.dtoconverter.UserCreateConverter;
+import instagram_clone.model.AvatarSize;
+import instagram_clone.model.ImageSize;
 import instagram_clone.model.User;
+import instagram_clone.security.SessionTokenService;
+import instagram_clone.service.FollowService;
+import instagram_clone.service.TimelineService;
 import instagram_clone.service.UserService;
+import instagram_clone.storage.BlobStore;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping({"/users"})
 public class UserController {
     private final UserService userService;
+    private final FollowService followService;
+    private final TimelineService timelineService;
+    private final BlobStore blobStore;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FollowService followService, TimelineService timelineService,
+                          BlobStore blobStore, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.followService = followService;
+        this.timelineService = timelineService;
+        this.blobStore = blobStore;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping({"/create"})
@@ -33,8 +62,8 @@ public class UserController {
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginDTO loginDTO) {
         try {
-            UserDTO user = userService.login(loginDTO.getUsername(), loginDTO.getPassword());
-            return ResponseEntity.ok(user);
+            SessionDTO session = userService.login(loginDTO.getUsername(), loginDTO.getPassword());
+            return ResponseEntity.ok(session);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -42,6 +71,14 @@ public class UserController {
         }
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            userService.logout(authorization.substring("Bearer ".length()));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/get/{id}")
     public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
         UserDTO user = this.userService.findById(id);
@@ -49,19 +86,35 @@ public class UserController {
     }
 
     @GetMapping("/getAll")
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        List<UserDTO> users = this.userService.findAll();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<StreamingResponseBody> getAllUsers() {
+        return JsonArrays.stream(objectMapper, this.userService::streamAll);
     }
 
     @PutMapping("/update/{id}")
-    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO) {
-        UserDTO user = this.userService.update(id, userDTO);
+    public ResponseEntity<UserDTO> updateUser(@PathVariable Long id, @RequestBody UserDTO userDTO,
+                                              @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        UserDTO user = this.userService.update(id, userDTO, session.isAdmin());
         return ResponseEntity.ok(user);
     }
 
+    // Admin only, see SecurityConfig
+    @PostMapping("/{id}/score-adjustments")
+    public ResponseEntity<UserDTO> adjustScore(@PathVariable Long id, @RequestBody ScoreAdjustmentDTO adjustment) {
+        if (adjustment.getDelta() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(this.userService.adjustScore(id, adjustment.getDelta()));
+    }
+
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id,
+                                           @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         this.userService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
@@ -69,7 +122,11 @@ public class UserController {
     @PostMapping(value = "/{id}/profile-picture", consumes = "multipart/form-data")
     public ResponseEntity<UserDTO> updateProfilePicture(
             @PathVariable Long id,
-            @RequestParam("profilePicture") MultipartFile profilePicture) {
+            @RequestParam("profilePicture") MultipartFile profilePicture,
+            @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             UserDTO updatedUser = userService.updateProfilePicture(id, profilePicture);
             return ResponseEntity.ok(updatedUser);
@@ -77,4 +134,74 @@ public class UserController {
             throw new RuntimeException("Failed to update profile picture: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The avatar image at the requested size. A request carrying the current version
+     * may be cached for good; any other is revalidated against the ETag.
+     */
+    @GetMapping("/{id}/avatar")
+    public ResponseEntity<StreamingResponseBody> getAvatar(
+            @PathVariable Long id,
+            @RequestParam(value = "size", defaultValue = "SMALL") AvatarSize size,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) throws IOException {
+        UserService.Avatar avatar = this.userService.findAvatar(id, size);
+        Optional<Path> blob = avatar == null ? Optional.empty() : blobStore.find(avatar.hash());
+        if (blob.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Renditions are content-addressed too, so the hash is a strong validator
+        String etag = "\"" + avatar.hash() + "\"";
+        CacheControl cacheControl = avatar.version().equals(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return MediaController.stream(blob.get(), etag, cacheControl);
+    }
+
+    @PostMapping("/{id}/following/{followeeId}")
+    public ResponseEntity<Void> follow(@PathVariable Long id, @PathVariable Long followeeId,
+                                       @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        this.followService.follow(id, followeeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{id}/following/{followeeId}")
+    public ResponseEntity<Void> unfollow(@PathVariable Long id, @PathVariable Long followeeId,
+                                         @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(id)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        this.followService.unfollow(id, followeeId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{id}/following")
+    public ResponseEntity<List<Long>> getFollowing(@PathVariable Long id) {
+        return ResponseEntity.ok(this.followService.findFolloweeIds(id));
+    }
+
+    @GetMapping("/{id}/followers")
+    public ResponseEntity<List<Long>> getFollowers(@PathVariable Long id) {
+        return ResponseEntity.ok(this.followService.findFollowerIds(id));
+    }
+
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<CursorPageDTO<ContentDTO>> getTimeline(
+            @PathVariable Long id,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "imageSize", defaultValue = "MEDIUM") ImageSize imageSize) {
+        try {
+            return ResponseEntity.ok(this.timelineService.findTimeline(id, limit, cursor, imageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -1,28 +1,39 @@
 package instagram_clone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import instagram_clone.dto.VoteDTO;
 import instagram_clone.dtoconverter.VoteConverter;
 import instagram_clone.model.Vote;
 import instagram_clone.model.VoteType;
+import instagram_clone.security.SessionTokenService;
 import instagram_clone.service.VoteService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/votes")
 public class VoteController {
     private final VoteService voteService;
+    private final ObjectMapper objectMapper;
 
-    public VoteController(VoteService voteService) {
+    public VoteController(VoteService voteService, ObjectMapper objectMapper) {
         this.voteService = voteService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/create")
-    public ResponseEntity<?> createVote(@RequestBody Vote vote) {
+    public ResponseEntity<?> createVote(@RequestBody Vote vote,
+                                        @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (vote.getUser() == null || !session.mayActFor(vote.getUser().getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             Vote savedVote = this.voteService.save(vote);
             return ResponseEntity.status(HttpStatus.CREATED).body(VoteConverter.toDTO(savedVote));
@@ -43,11 +54,8 @@ public class VoteController {
     }
 
     @GetMapping("/getAll")
-    public ResponseEntity<List<VoteDTO>> getAllVotes() {
-        List<VoteDTO> votes = this.voteService.findAll().stream()
-                .map(VoteConverter::toDTO)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(votes);
+    public ResponseEntity<StreamingResponseBody> getAllVotes() {
+        return JsonArrays.stream(objectMapper, this.voteService::streamAll);
     }
 
     @GetMapping("/user/{userId}")
@@ -78,7 +86,11 @@ public class VoteController {
     public ResponseEntity<?> updateVote(
             @PathVariable Long userId,
             @PathVariable Long contentId,
-            @RequestParam VoteType type) {
+            @RequestParam VoteType type,
+            @AuthenticationPrincipal SessionTokenService.Session session) {
+        if (!session.mayActFor(userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             Vote updatedVote = this.voteService.updateVote(userId, contentId, type);
             return ResponseEntity.ok(VoteConverter.toDTO(updatedVote));
@@ -88,7 +100,12 @@ public class VoteController {
     }
 
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<?> deleteVote(@PathVariable Long id) {
+    public ResponseEntity<?> deleteVote(@PathVariable Long id,
+                                        @AuthenticationPrincipal SessionTokenService.Session session) {
+        Optional<Vote> vote = this.voteService.findById(id);
+        if (vote.isPresent() && !session.mayActFor(vote.get().getUser().getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
         try {
             this.voteService.deleteById(id);
             return ResponseEntity.noContent().build();
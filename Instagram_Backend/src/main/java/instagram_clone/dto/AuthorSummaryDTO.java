@@ -0,0 +1,10 @@
+package instagram_clone.dto;
+
+import lombok.Data;
+
+@Data
+public class AuthorSummaryDTO {
+    private Long id;
+    private String username;
+    private String avatarUrl;
+}
@@ -0,0 +1,18 @@
+package instagram_clone.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class CommentNodeDTO {
+    private ContentDTO content;
+    private List<CommentNodeDTO> replies = new ArrayList<>();
+
+    public CommentNodeDTO(ContentDTO content) {
+        this.content = content;
+    }
+}
@@ -11,7 +11,7 @@ public class ContentCreateDTO {
     private boolean isCommentable;
     private Long authorId;
     private Long parentId;
-    private byte[] image;
+    private String imageHash;
     private String tags;
     private ContentType contentType;
     private PostStatus status;
@@ -3,7 +3,6 @@ package instagram_clone.dto;
 import instagram_clone.model.Content;
 import instagram_clone.model.ContentType;
 import instagram_clone.model.PostStatus;
-import instagram_clone.model.User;
 import lombok.Data;
 
 import java.time.LocalDateTime;
@@ -13,11 +12,11 @@ import java.util.Set;
 @Data
 public class ContentDTO {
     private Long id;
-    private User author;
+    private UserDTO author;
     private ContentType type;
     private String title;
     private String text;
-    private byte[] image;
+    private String imageUrl;
     private LocalDateTime dateTime;
     private PostStatus status;
     private Content parent;
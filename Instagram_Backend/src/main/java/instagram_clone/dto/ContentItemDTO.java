@@ -0,0 +1,29 @@
+package instagram_clone.dto;
+
+import instagram_clone.model.ContentType;
+import instagram_clone.model.PostStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link ContentDTO} that refers to its author and parent by id; see {@link NormalizedPageDTO}.
+ */
+@Data
+public class ContentItemDTO {
+    private Long id;
+    private Long authorId;
+    private ContentType type;
+    private String title;
+    private String text;
+    private String imageUrl;
+    private LocalDateTime dateTime;
+    private PostStatus status;
+    private Long parentId;
+    private boolean isCommentable;
+    private Set<TagDTO> tags = new HashSet<>();
+    private Integer upvotes;
+    private Integer downvotes;
+}
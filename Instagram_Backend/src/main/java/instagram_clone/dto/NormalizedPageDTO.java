@@ -0,0 +1,23 @@
+package instagram_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of contents in which each author appears once, in {@code authors},
+ * however many of the items they wrote.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NormalizedPageDTO {
+    private List<ContentItemDTO> items = new ArrayList<>();
+    private Map<Long, AuthorSummaryDTO> authors = new LinkedHashMap<>();
+    private String nextCursor;
+}
@@ -0,0 +1,8 @@
+package instagram_clone.dto;
+
+import lombok.Data;
+
+@Data
+public class ScoreAdjustmentDTO {
+    private Double delta;
+}
@@ -2,7 +2,10 @@ package instagram_clone.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class ScoreRequestDTO {
     private ScoreDTO vote;
-} 
\ No newline at end of file
+    private List<ScoreDTO> votes;
+} 
@@ -2,7 +2,10 @@ package instagram_clone.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class ScoreResponseDTO {
     private double score;
-} 
\ No newline at end of file
+    private List<Double> scores;
+} 
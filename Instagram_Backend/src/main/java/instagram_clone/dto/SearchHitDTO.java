@@ -0,0 +1,16 @@
+package instagram_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SearchHitDTO {
+    private ContentDTO content;
+    private float score;
+    // Best fragments of each field with matched terms wrapped in <b></b>
+    private String titleHighlight;
+    private String textHighlight;
+}
@@ -0,0 +1,15 @@
+package instagram_clone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SessionDTO {
+    private UserDTO user;
+    private String accessToken;
+    // Epoch milliseconds
+    private long expiresAt;
+}
@@ -2,7 +2,6 @@ package instagram_clone.dto;
 
 import instagram_clone.model.UserRole;
 import lombok.Data;
-import java.util.Base64;
 
 @Data
 public class UserDTO {
@@ -12,11 +11,7 @@ public class UserDTO {
     private UserRole role;
     private Double score;
     private Boolean banned;
-    private String profilePicture;
-
-    public void setProfilePicture(byte[] profilePicture) {
-        if (profilePicture != null) {
-            this.profilePicture = Base64.getEncoder().encodeToString(profilePicture);
-        }
-    }
+    private Long followerCount;
+    private String avatarUrl;
+    private String avatarVersion;
 }
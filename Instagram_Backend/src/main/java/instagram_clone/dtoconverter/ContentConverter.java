@@ -1,12 +1,13 @@
 package instagram_clone.dtoconverter;
 
 import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.ContentItemDTO;
 import instagram_clone.dto.TagDTO;
 import instagram_clone.model.Content;
 import instagram_clone.model.ContentType;
-import instagram_clone.model.User;
+import instagram_clone.model.ImageSize;
 import instagram_clone.model.PostStatus;
-import instagram_clone.model.VoteType;
+import instagram_clone.storage.BlobStore;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -14,40 +15,30 @@ import java.util.Set;
 public class ContentConverter {
 
     public static ContentDTO toDTO(Content content) {
+        return toDTO(content, ImageSize.FULL);
+    }
+
+    public static ContentDTO toDTO(Content content, ImageSize imageSize) {
+        return toDTO(content, imageSize, tagDTOs(content));
+    }
+
+    public static ContentDTO toDTO(Content content, ImageSize imageSize, Set<TagDTO> tags) {
         ContentDTO dto = new ContentDTO();
         dto.setId(content.getId());
         
-        User author = content.getAuthor();
-        if (author != null) {
-            User authorInfo = new User();
-            authorInfo.setId(author.getId());
-            authorInfo.setUsername(author.getUsername());
-            authorInfo.setEmail(author.getEmail());
-            authorInfo.setRole(author.getRole());
-            authorInfo.setScore(author.getScore());
-            authorInfo.setBanned(author.getBanned());
-            authorInfo.setProfilePicture(author.getProfilePicture());
-            dto.setAuthor(authorInfo);
+        if (content.getAuthor() != null) {
+            dto.setAuthor(UserConverter.toDTO(content.getAuthor()));
         }
         
         dto.setType(content.getType());
         dto.setTitle(content.getTitle());
         dto.setText(content.getText());
-        dto.setImage(content.getImage());
+        dto.setImageUrl(BlobStore.urlFor(imageHashFor(content, imageSize)));
         dto.setDateTime(content.getDateTime());
         dto.setStatus(content.getStatus());
         dto.setCommentable(content.isCommentable());
-
-        if (content.getVotes() != null) {
-            long upvotes = content.getVotes().stream()
-                .filter(vote -> vote.getType() == VoteType.UPVOTE)
-                .count();
-            long downvotes = content.getVotes().stream()
-                .filter(vote -> vote.getType() == VoteType.DOWN_VOTE)
-                .count();
-            dto.setUpvotes((int) upvotes);
-            dto.setDownvotes((int) downvotes);
-        }
+        dto.setUpvotes(content.getUpvoteCount());
+        dto.setDownvotes(content.getDownvoteCount());
 
         if (content.getType() == ContentType.COMMENT && content.getParent() != null) {
             Content parent = new Content();
@@ -60,17 +51,45 @@ public class ContentConverter {
             dto.setParent(null);
         }
 
+        dto.setTags(tags);
+
+        return dto;
+    }
+
+    public static ContentItemDTO toItemDTO(Content content, ImageSize imageSize) {
+        ContentItemDTO dto = new ContentItemDTO();
+        dto.setId(content.getId());
+        dto.setAuthorId(content.getAuthor() != null ? content.getAuthor().getId() : null);
+        dto.setType(content.getType());
+        dto.setTitle(content.getTitle());
+        dto.setText(content.getText());
+        dto.setImageUrl(BlobStore.urlFor(imageHashFor(content, imageSize)));
+        dto.setDateTime(content.getDateTime());
+        dto.setStatus(content.getStatus());
+        dto.setCommentable(content.isCommentable());
+        dto.setUpvotes(content.getUpvoteCount());
+        dto.setDownvotes(content.getDownvoteCount());
+        dto.setParentId(content.getParent() != null ? content.getParent().getId() : null);
+        dto.setTags(tagDTOs(content));
+        return dto;
+    }
+
+    private static Set<TagDTO> tagDTOs(Content content) {
         Set<TagDTO> tagDTOs = new HashSet<>();
         if (content.getTags() != null) {
-            content.getTags().forEach(tag -> {
-                TagDTO tagDTO = new TagDTO();
-                tagDTO.setName(tag.getName());
-                tagDTOs.add(tagDTO);
-            });
+            content.getTags().forEach(tag -> tagDTOs.add(TagConverter.toDTO(tag)));
         }
-        dto.setTags(tagDTOs);
+        return tagDTOs;
+    }
 
-        return dto;
+    // Renditions are produced after commit, so fall back to the original until they exist
+    public static String imageHashFor(Content content, ImageSize imageSize) {
+        String rendition = switch (imageSize) {
+            case SMALL -> content.getImageSmallHash() != null ? content.getImageSmallHash() : content.getImageMediumHash();
+            case MEDIUM -> content.getImageMediumHash();
+            case FULL -> null;
+        };
+        return rendition != null ? rendition : content.getImageHash();
     }
 
     public static Content toEntity(ContentDTO dto) {
@@ -83,7 +102,6 @@ public class ContentConverter {
         
         content.setTitle(dto.getTitle());
         content.setText(dto.getText());
-        content.setImage(dto.getImage());
         content.setDateTime(dto.getDateTime());
         
         // Convert status string to enum if needed
@@ -2,29 +2,34 @@ package instagram_clone.dtoconverter;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import instagram_clone.dto.ContentCreateDTO;
 import instagram_clone.model.Content;
 import instagram_clone.model.ContentType;
 import instagram_clone.model.PostStatus;
 import instagram_clone.model.Tag;
 import instagram_clone.model.User;
-import instagram_clone.repository.TagRepository;
+import instagram_clone.service.TagDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 @Component
 public class ContentCreateConverter {
-    private final TagRepository tagRepository;
-    private final ObjectMapper objectMapper;
+    private static final Logger logger = LoggerFactory.getLogger(ContentCreateConverter.class);
 
-    public ContentCreateConverter(TagRepository tagRepository) {
-        this.tagRepository = tagRepository;
-        this.objectMapper = new ObjectMapper();
+    private final TagDictionary tagDictionary;
+    // Readers are immutable and thread-safe, so the list type is resolved once
+    private final ObjectReader tagListReader;
+
+    public ContentCreateConverter(TagDictionary tagDictionary) {
+        this.tagDictionary = tagDictionary;
+        this.tagListReader = new ObjectMapper().readerFor(new TypeReference<List<String>>() {});
     }
     
     public Content toEntity(ContentCreateDTO dto, User author) {
@@ -33,65 +38,30 @@ public class ContentCreateConverter {
         content.setType(ContentType.valueOf(String.valueOf(dto.getContentType())));
         content.setTitle(dto.getTitle());
         content.setText(dto.getText());
-        content.setImage(dto.getImage());
+        content.setImageHash(dto.getImageHash());
         content.setDateTime(LocalDateTime.now());
         content.setCommentable(dto.isCommentable());
         
-        // Set default status
-        if (dto.getStatus() != null) {
-            System.out.println("Setting status from DTO: " + dto.getStatus());
-            content.setStatus(dto.getStatus());
-        } else {
-            System.out.println("Setting default status: JUST_POSTED");
-            content.setStatus(PostStatus.JUST_POSTED);
-        }
-        
-        System.out.println("Final content status: " + content.getStatus());
-        
+        content.setStatus(dto.getStatus() != null ? dto.getStatus() : PostStatus.JUST_POSTED);
+
+        Set<Tag> tags = new HashSet<>();
         if (dto.getTags() != null && !dto.getTags().isEmpty()) {
             try {
-                System.out.println("Raw tags string: " + dto.getTags());
-                List<String> tagNames = objectMapper.readValue(dto.getTags(), new TypeReference<List<String>>() {});
-                System.out.println("Parsed tag names: " + tagNames);
-                Set<Tag> tags = new HashSet<>();
-                
-                // Create a new list to store tags that need to be saved
-                List<Tag> tagsToSave = new ArrayList<>();
-                
-                // First, find all existing tags
-                for (String tagName : tagNames) {
-                    System.out.println("Processing tag: " + tagName);
-                    tagRepository.findByName(tagName).ifPresent(tags::add);
-                }
-                
-                // Then, create new tags for any that don't exist
-                for (String tagName : tagNames) {
-                    if (tags.stream().noneMatch(t -> t.getName().equals(tagName))) {
-                        System.out.println("Creating new tag: " + tagName);
-                        Tag newTag = new Tag();
-                        newTag.setName(tagName);
-                        tagsToSave.add(newTag);
-                    }
-                }
-                
-                // Save all new tags at once
-                if (!tagsToSave.isEmpty()) {
-                    List<Tag> savedTags = tagRepository.saveAll(tagsToSave);
-                    tags.addAll(savedTags);
-                }
-                
-                content.setTags(tags);
+                List<String> tagNames = tagListReader.readValue(dto.getTags());
+                // Detached references are enough for the join table, no tag rows are loaded
+                tagDictionary.resolve(tagNames).forEach((name, id) -> {
+                    Tag tag = new Tag();
+                    tag.setId(id);
+                    tag.setName(name);
+                    tags.add(tag);
+                });
             } catch (Exception e) {
-                System.err.println("Error parsing tags: " + e.getMessage());
-                e.printStackTrace();
-                // Don't throw an exception, just set empty tags
-                content.setTags(new HashSet<>());
+                // Tags that cannot be parsed or created are dropped rather than failing the post
+                logger.warn("Ignoring tags {}: {}", dto.getTags(), e.getMessage());
             }
-        } else {
-            System.out.println("No tags provided in DTO");
-            content.setTags(new HashSet<>());
         }
-        
+        content.setTags(tags);
+
         return content;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,105 @@
+package instagram_clone.dtoconverter;
+
+import instagram_clone.cache.EntityCache;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.NormalizedPageDTO;
+import instagram_clone.model.Content;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.Tag;
+import instagram_clone.model.User;
+import instagram_clone.repository.ContentRepository;
+import instagram_clone.repository.UserRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Builds DTOs for a page of content ids with a fixed number of set-based queries
+ * (contents with parents, tags, authors) regardless of page size. Contents and
+ * authors already in the {@link EntityCache} are not queried at all. Vote counts
+ * come from the denormalized counters on the content row.
+ */
+@Component
+public class ContentDTOAssembler {
+    private final ContentRepository contentRepository;
+    private final UserRepository userRepository;
+    private final EntityCache entityCache;
+
+    public ContentDTOAssembler(ContentRepository contentRepository, UserRepository userRepository, EntityCache entityCache) {
+        this.contentRepository = contentRepository;
+        this.userRepository = userRepository;
+        this.entityCache = entityCache;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ContentDTO> assemble(List<Long> ids, ImageSize imageSize) {
+        List<ContentDTO> dtos = new ArrayList<>(ids.size());
+        for (Content view : views(ids)) {
+            dtos.add(ContentConverter.toDTO(view, imageSize));
+        }
+        return dtos;
+    }
+
+    /**
+     * Like {@link #assemble} but with each author summarized once for the whole page.
+     */
+    @Transactional(readOnly = true)
+    public NormalizedPageDTO assembleNormalized(List<Long> ids, ImageSize imageSize, String nextCursor) {
+        NormalizedPageDTO page = new NormalizedPageDTO();
+        for (Content view : views(ids)) {
+            page.getItems().add(ContentConverter.toItemDTO(view, imageSize));
+            if (view.getAuthor() != null) {
+                page.getAuthors().computeIfAbsent(view.getAuthor().getId(), id -> UserConverter.toSummaryDTO(view.getAuthor()));
+            }
+        }
+        page.setNextCursor(nextCursor);
+        return page;
+    }
+
+    // Cached contents with their cached authors filled in, in the caller's order;
+    // ids deleted since the page query are skipped
+    private List<Content> views(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, Content> contents = entityCache.contents(ids, this::loadContents);
+        Map<Long, User> authors = entityCache.users(
+                contents.values().stream().map(content -> content.getAuthor().getId()).collect(Collectors.toSet()),
+                missing -> userRepository.findAllById(missing).stream()
+                        .collect(Collectors.toMap(User::getId, EntityCache::snapshot)));
+
+        List<Content> views = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Content content = contents.get(id);
+            if (content == null) {
+                continue;
+            }
+            Content view = EntityCache.copyOf(content);
+            view.setAuthor(authors.get(content.getAuthor().getId()));
+            views.add(view);
+        }
+        return views;
+    }
+
+    private Map<Long, Content> loadContents(Set<Long> ids) {
+        Map<Long, Set<Tag>> tags = new HashMap<>();
+        for (Object[] row : contentRepository.findTagsByContentIdIn(ids)) {
+            Tag tag = new Tag();
+            tag.setId((Long) row[1]);
+            tag.setName((String) row[2]);
+            tags.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add(tag);
+        }
+        return contentRepository.findWithParentByIdIn(ids).stream()
+                .collect(Collectors.toMap(Content::getId,
+                        content -> EntityCache.snapshot(content, tags.getOrDefault(content.getId(), Set.of()))));
+    }
+}
@@ -1,8 +1,10 @@
 package instagram_clone.dtoconverter;
 
+import instagram_clone.dto.AuthorSummaryDTO;
 import instagram_clone.dto.UserDTO;
+import instagram_clone.model.AvatarSize;
 import instagram_clone.model.User;
-import java.util.Base64;
+import instagram_clone.storage.AvatarStore;
 
 public class UserConverter {
     public static UserDTO toDTO(User user) {
@@ -13,9 +15,17 @@ public class UserConverter {
         dto.setRole(user.getRole());
         dto.setScore(user.getScore());
         dto.setBanned(user.getBanned());
-        if (user.getProfilePicture() != null) {
-            dto.setProfilePicture(user.getProfilePicture());
-        }
+        dto.setFollowerCount(user.getFollowerCount());
+        dto.setAvatarUrl(AvatarStore.urlFor(user.getId(), user.getAvatarHash()));
+        dto.setAvatarVersion(AvatarStore.versionOf(user.getAvatarHash()));
+        return dto;
+    }
+
+    public static AuthorSummaryDTO toSummaryDTO(User user) {
+        AuthorSummaryDTO dto = new AuthorSummaryDTO();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setAvatarUrl(AvatarStore.urlFor(user.getId(), user.getAvatarHash()));
         return dto;
     }
 
@@ -27,9 +37,15 @@ public class UserConverter {
         user.setRole(dto.getRole());
         user.setScore(dto.getScore());
         user.setBanned(dto.getBanned());
-        if (dto.getProfilePicture() != null) {
-            user.setProfilePicture(dto.getProfilePicture().getBytes());
-        }
         return user;
     }
+
+    public static String avatarHashFor(User user, AvatarSize avatarSize) {
+        String rendition = switch (avatarSize) {
+            case SMALL -> user.getAvatarSmallHash();
+            case MEDIUM -> user.getAvatarMediumHash();
+            case FULL -> null;
+        };
+        return rendition != null ? rendition : user.getAvatarHash();
+    }
 }
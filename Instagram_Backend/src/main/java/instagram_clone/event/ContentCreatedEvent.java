@@ -0,0 +1,15 @@
+package instagram_clone.event;
+
+import instagram_clone.model.ContentType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ContentCreatedEvent(Long contentId,
+                                  ContentType type,
+                                  Long authorId,
+                                  Long parentId,
+                                  String imageHash,
+                                  LocalDateTime dateTime,
+                                  List<Long> tagIds) {
+}
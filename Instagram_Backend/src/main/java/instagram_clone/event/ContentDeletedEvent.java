@@ -0,0 +1,7 @@
+package instagram_clone.event;
+
+import java.util.List;
+
+// Published once per deleted batch, after the batch's transaction commits
+public record ContentDeletedEvent(List<Long> contentIds) {
+}
@@ -0,0 +1,10 @@
+package instagram_clone.event;
+
+import instagram_clone.model.ContentType;
+
+// Published when content is created or its title/text is edited
+public record ContentTextChangedEvent(Long contentId,
+                                      ContentType type,
+                                      String title,
+                                      String text) {
+}
@@ -0,0 +1,7 @@
+package instagram_clone.event;
+
+import java.util.Collection;
+
+// Published whenever vote counters of the given contents change
+public record ContentVotedEvent(Collection<Long> contentIds) {
+}
@@ -0,0 +1,8 @@
+package instagram_clone.event;
+
+// followerCount is the followee's count after the change
+public record FollowChangedEvent(Long followerId,
+                                 Long followeeId,
+                                 boolean following,
+                                 long followerCount) {
+}
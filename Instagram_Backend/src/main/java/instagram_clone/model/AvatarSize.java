@@ -0,0 +1,17 @@
+package instagram_clone.model;
+
+public enum AvatarSize {
+    SMALL(64),
+    MEDIUM(256),
+    FULL(0);
+
+    private final int maxWidth;
+
+    AvatarSize(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+}
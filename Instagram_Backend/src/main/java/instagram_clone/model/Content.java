@@ -8,14 +8,16 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import instagram_clone.util.ContentPath;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import jakarta.persistence.FetchType;
 
 import java.time.LocalDateTime;
@@ -26,14 +28,18 @@ import java.util.Set;
 
 @Data
 @Entity
-@Table(name = "contents")
+@Table(name = "contents", indexes = {
+        @Index(name = "idx_contents_type_date_id", columnList = "type, date_time, id"),
+        @Index(name = "idx_contents_path_depth", columnList = "path, depth"),
+        @Index(name = "idx_contents_status_id", columnList = "status, id")
+})
 public class Content {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", nullable = false)
     private User author;
 
@@ -47,9 +53,14 @@ public class Content {
     @Column(name = "text", nullable = false, length = 500)
     private String text;
 
-    @Lob
-    @Column(name = "image", columnDefinition = "LONGBLOB")
-    private byte[] image;
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "image_small_hash", length = 64)
+    private String imageSmallHash;
+
+    @Column(name = "image_medium_hash", length = 64)
+    private String imageMediumHash;
 
     @Column(name = "date_time", nullable = false)
     private LocalDateTime dateTime;
@@ -58,13 +69,28 @@ public class Content {
     @Column(name = "status", nullable = false)
     private PostStatus status = PostStatus.JUST_POSTED;
 
+    @ColumnDefault("0")
+    @Column(name = "upvote_count", nullable = false, insertable = false, updatable = false)
+    private int upvoteCount;
+
+    @ColumnDefault("0")
+    @Column(name = "downvote_count", nullable = false, insertable = false, updatable = false)
+    private int downvoteCount;
+
     @Column(name = "is_commentable")
     private boolean isCommentable;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_id")
     private Content parent;
 
+    // See ContentPath; assigned once the id is known
+    @Column(name = "path", length = ContentPath.MAX_LENGTH)
+    private String path;
+
+    @Column(name = "depth")
+    private Integer depth;
+
     @OneToMany(mappedBy = "parent", cascade = {CascadeType.ALL})
     private List<Content> children = new ArrayList<>();
 
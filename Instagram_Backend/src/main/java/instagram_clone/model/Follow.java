@@ -0,0 +1,33 @@
+package instagram_clone.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "follows",
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"follower_id", "followee_id"})},
+        indexes = {@Index(name = "idx_follows_followee", columnList = "followee_id, follower_id")})
+public class Follow {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "follower_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User follower;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "followee_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User followee;
+
+    @Column(name = "date_time", nullable = false)
+    private LocalDateTime dateTime;
+}
@@ -0,0 +1,17 @@
+package instagram_clone.model;
+
+public enum ImageSize {
+    SMALL(320),
+    MEDIUM(1080),
+    FULL(0);
+
+    private final int maxWidth;
+
+    ImageSize(int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+}
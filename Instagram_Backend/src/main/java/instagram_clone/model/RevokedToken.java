@@ -0,0 +1,27 @@
+package instagram_clone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single access token revoked at logout. Rows are kept only until
+ * {@code expiresAt} (epoch milliseconds), after which the token is rejected anyway.
+ */
+@Data
+@Entity
+@Table(name = "revoked_tokens")
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(name = "token_id", length = 16)
+    private String tokenId;
+
+    @Column(name = "expires_at", nullable = false)
+    private long expiresAt;
+}
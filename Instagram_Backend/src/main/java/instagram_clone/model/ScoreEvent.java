@@ -0,0 +1,46 @@
+package instagram_clone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change to a user's score. Writers only insert rows; the compactor folds
+ * them into {@code users.score} and flags them as compacted in one transaction.
+ */
+@Data
+@Entity
+@Table(name = "score_events", indexes = {
+        @Index(name = "idx_score_events_user_compacted", columnList = "user_id, compacted"),
+        @Index(name = "idx_score_events_compacted", columnList = "compacted, id")
+})
+public class ScoreEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "delta", nullable = false)
+    private double delta;
+
+    // Null for aggregated or manual adjustments
+    @Column(name = "vote_id")
+    private Long voteId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Set by ScoreLedgerCompactor in the transaction that adds the delta to users.score
+    @Column(name = "compacted", nullable = false)
+    private boolean compacted;
+}
@@ -0,0 +1,22 @@
+package instagram_clone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * Single row that compactors lock to take turns, so two instances never apply
+ * the same events.
+ */
+@Data
+@Entity
+@Table(name = "score_ledger_state")
+public class ScoreLedgerState {
+    public static final int SINGLETON_ID = 1;
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+}
@@ -8,6 +8,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.Table;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -24,6 +26,9 @@ public class Tag {
     @Column(name = "name", unique = true, nullable = false, length = 50)
     private String name;
 
+    // Excluded so hashing a tag never walks the bidirectional association
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToMany(mappedBy = "tags")
     private Set<Content> contents = new HashSet();
 }
\ No newline at end of file
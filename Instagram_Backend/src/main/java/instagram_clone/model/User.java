@@ -11,6 +11,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -39,14 +40,26 @@ public class User {
     @Column(name = "role")
     private UserRole role;
 
-    @Column(name = "score")
+    // Materialized total maintained by ScoreLedgerCompactor; changes go through the score ledger
+    @Column(name = "score", updatable = false)
     private Double score;
 
+    // Maintained with atomic increments by FollowService
+    @ColumnDefault("0")
+    @Column(name = "follower_count", nullable = false, insertable = false, updatable = false)
+    private long followerCount;
+
     @Column(name = "banned")
     private Boolean banned;
 
-    @Column(name = "profile_picture", columnDefinition = "LONGBLOB")
-    private byte[] profilePicture;
+    @Column(name = "avatar_hash", length = 64)
+    private String avatarHash;
+
+    @Column(name = "avatar_small_hash", length = 64)
+    private String avatarSmallHash;
+
+    @Column(name = "avatar_medium_hash", length = 64)
+    private String avatarMediumHash;
 
     @OneToMany(mappedBy = "author", cascade = {CascadeType.ALL})
     private List<Content> contents = new ArrayList();
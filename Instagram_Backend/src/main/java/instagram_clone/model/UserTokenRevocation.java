@@ -0,0 +1,27 @@
+package instagram_clone.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tokens of the user issued before {@code revokedBefore} (epoch milliseconds) are
+ * no longer accepted. Rows are kept only until those tokens would have expired anyway.
+ */
+@Data
+@Entity
+@Table(name = "user_token_revocations")
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserTokenRevocation {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "revoked_before", nullable = false)
+    private long revokedBefore;
+}
@@ -1,29 +1,92 @@
 package instagram_clone.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import instagram_clone.model.Content;
 import instagram_clone.model.ContentType;
-import instagram_clone.model.Tag;
+import instagram_clone.model.VoteType;
+import instagram_clone.util.FeedCursor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface ContentRepository extends JpaRepository<Content, Long> {
-    @Query("SELECT DISTINCT c FROM Content c LEFT JOIN FETCH c.tags WHERE c.type = :type")
-    List<Content> findByType(ContentType type);
+    @Modifying
+    @Query("UPDATE Content c SET c.upvoteCount = c.upvoteCount + :upDelta, " +
+            "c.downvoteCount = c.downvoteCount + :downDelta WHERE c.id = :id")
+    int incrementVoteCounts(@Param("id") Long id, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
 
-    @Query("SELECT DISTINCT t FROM Tag t JOIN t.contents c WHERE c.id = :postId")
-    List<Tag> findTagsForPost(@Param("postId") Long postId);
+    default void applyVoteTransition(Long id, VoteType removed, VoteType added) {
+        int upDelta = (added == VoteType.UPVOTE ? 1 : 0) - (removed == VoteType.UPVOTE ? 1 : 0);
+        int downDelta = (added == VoteType.DOWN_VOTE ? 1 : 0) - (removed == VoteType.DOWN_VOTE ? 1 : 0);
+        if (upDelta != 0 || downDelta != 0) {
+            incrementVoteCounts(id, upDelta, downDelta);
+        }
+    }
 
-    @Query("SELECT DISTINCT c FROM Content c LEFT JOIN FETCH c.tags WHERE c.id = :id")
-    Optional<Content> findById(@Param("id") Long id);
+    @Query("SELECT new instagram_clone.util.FeedCursor(c.dateTime, c.id) FROM Content c WHERE c.type = :type " +
+            "ORDER BY c.dateTime DESC, c.id DESC")
+    List<FeedCursor> findFeedFirstPage(@Param("type") ContentType type, Limit limit);
+
+    @Query("SELECT new instagram_clone.util.FeedCursor(c.dateTime, c.id) FROM Content c WHERE c.type = :type " +
+            "AND (c.dateTime < :dateTime OR (c.dateTime = :dateTime AND c.id < :id)) " +
+            "ORDER BY c.dateTime DESC, c.id DESC")
+    List<FeedCursor> findFeedPageAfter(@Param("type") ContentType type,
+                                       @Param("dateTime") LocalDateTime dateTime,
+                                       @Param("id") Long id,
+                                       Limit limit);
+
+    // Authors are left lazy here and on the detail lookup; callers take them from the user cache
+    @EntityGraph(attributePaths = {"parent"})
+    List<Content> findWithParentByIdIn(Collection<Long> ids);
+
+    @Query("SELECT c.id, t.id, t.name FROM Content c JOIN c.tags t WHERE c.id IN :ids")
+    List<Object[]> findTagsByContentIdIn(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(attributePaths = {"tags", "parent"})
+    Optional<Content> findWithTagsAndParentById(Long id);
 
     List<Content> findByParentId(Long parentId);
 
-    @Query("SELECT DISTINCT c FROM Content c LEFT JOIN FETCH c.tags WHERE c.author.id = :authorId AND c.type = :type")
-    List<Content> findByAuthorIdAndType(@Param("authorId") Long authorId, @Param("type") ContentType type);
+    boolean existsByParentId(Long parentId);
+
+    @Query("SELECT c.id FROM Content c WHERE c.parent.id = :parentId ORDER BY c.id")
+    List<Long> findIdsByParentId(@Param("parentId") Long parentId);
+
+    @Query("SELECT c.id FROM Content c WHERE c.parent.id = :parentId AND c.id > :afterId ORDER BY c.id")
+    List<Long> findChildIdsAfter(@Param("parentId") Long parentId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT c.path, c.depth FROM Content c WHERE c.id = :id")
+    List<Object[]> findPathAndDepthById(@Param("id") Long id);
+
+    // Rows of one subtree range in depth-first order, as (id, path)
+    @Query("SELECT c.id, c.path FROM Content c WHERE c.path >= :fromPath AND c.path < :toPath " +
+            "AND c.depth <= :maxDepth ORDER BY c.path")
+    List<Object[]> findPathRange(@Param("fromPath") String fromPath,
+                                 @Param("toPath") String toPath,
+                                 @Param("maxDepth") int maxDepth);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Content c SET c.imageSmallHash = :smallHash, c.imageMediumHash = :mediumHash WHERE c.id = :id")
+    int updateImageRenditions(@Param("id") Long id,
+                              @Param("smallHash") String smallHash,
+                              @Param("mediumHash") String mediumHash);
+
+    // Images whose renditions were never generated, as (id, imageHash)
+    @Query("SELECT c.id, c.imageHash FROM Content c WHERE c.imageHash IS NOT NULL AND c.imageSmallHash IS NULL " +
+            "AND c.id > :afterId ORDER BY c.id")
+    List<Object[]> findMissingRenditionsAfter(@Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT c.id FROM Content c WHERE c.author.id = :authorId AND c.type = :type ORDER BY c.id")
+    List<Long> findIdsByAuthorIdAndType(@Param("authorId") Long authorId, @Param("type") ContentType type);
 }
\ No newline at end of file
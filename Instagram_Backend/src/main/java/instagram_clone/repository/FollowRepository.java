@@ -0,0 +1,32 @@
+package instagram_clone.repository;
+
+import instagram_clone.model.Follow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FollowRepository extends JpaRepository<Follow, Long> {
+    // Returns 0 instead of failing when the follow exists, e.g. inserted by a concurrent request
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO follows (follower_id, followee_id, date_time) " +
+            "VALUES (:followerId, :followeeId, :dateTime)", nativeQuery = true)
+    int insertIfAbsent(@Param("followerId") Long followerId,
+                       @Param("followeeId") Long followeeId,
+                       @Param("dateTime") LocalDateTime dateTime);
+
+    @Modifying
+    @Query("DELETE FROM Follow f WHERE f.follower.id = :followerId AND f.followee.id = :followeeId")
+    int deleteByFollowerIdAndFolloweeId(@Param("followerId") Long followerId, @Param("followeeId") Long followeeId);
+
+    @Query("SELECT f.followee.id FROM Follow f WHERE f.follower.id = :followerId ORDER BY f.followee.id")
+    List<Long> findFolloweeIds(@Param("followerId") Long followerId);
+
+    @Query("SELECT f.follower.id FROM Follow f WHERE f.followee.id = :followeeId ORDER BY f.follower.id")
+    List<Long> findFollowerIds(@Param("followeeId") Long followeeId);
+}
@@ -0,0 +1,19 @@
+package instagram_clone.repository;
+
+import instagram_clone.model.ScoreEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScoreEventRepository extends JpaRepository<ScoreEvent, Long> {
+    // Materialized total plus the uncompacted events, read in one statement so a
+    // concurrent compaction is seen either entirely or not at all
+    @Query("SELECT u.id, COALESCE(u.score, 0) + COALESCE((SELECT SUM(e.delta) FROM ScoreEvent e " +
+            "WHERE e.userId = u.id AND e.compacted = false), 0) FROM User u WHERE u.id IN :userIds")
+    List<Object[]> findCurrentScores(@Param("userIds") Collection<Long> userIds);
+}
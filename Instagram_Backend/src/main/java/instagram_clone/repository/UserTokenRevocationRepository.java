@@ -0,0 +1,21 @@
+package instagram_clone.repository;
+
+import instagram_clone.model.UserTokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface UserTokenRevocationRepository extends JpaRepository<UserTokenRevocation, Long> {
+    List<UserTokenRevocation> findByRevokedBeforeGreaterThan(long revokedBefore);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UserTokenRevocation r WHERE r.revokedBefore <= :revokedBefore")
+    int deleteExpired(@Param("revokedBefore") long revokedBefore);
+}
@@ -1,15 +1,32 @@
 package instagram_clone.repository;
 
 import instagram_clone.model.Vote;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VoteRepository extends JpaRepository<Vote, Long> {
+    // Vote DTOs show the voter's name and the content's title; fetched in the same rows, since the
+    // persistence context is cleared between batches and lazy loads would start over after each one
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT v FROM Vote v JOIN FETCH v.user JOIN FETCH v.content")
+    Stream<Vote> streamAll();
+
+    @EntityGraph(attributePaths = {"user", "content"})
     List<Vote> findByUserId(Long userId);
+
+    @EntityGraph(attributePaths = {"user", "content"})
     List<Vote> findByContentId(Long contentId);
+
     Optional<Vote> findByUserIdAndContentId(Long userId, Long contentId);
 }
@@ -0,0 +1,253 @@
+package instagram_clone.search;
+
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.ContentTextChangedEvent;
+import instagram_clone.model.ContentType;
+import instagram_clone.util.PlatformThreads;
+import instagram_clone.util.SearchCursor;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full-text index over post titles and text, kept in a Lucene index on local
+ * disk, stemmed for English and ranked with BM25. Writes arrive from content events after commit
+ * and become searchable on the next refresh; {@link #reindex()} rebuilds the
+ * index from the contents table in bounded batches.
+ */
+@Component
+public class ContentSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ContentSearchIndex.class);
+    private static final String ID = "id";
+    private static final String ID_SORT = "id_sort";
+    private static final String GENERATION = "generation";
+    private static final String TITLE = "title";
+    private static final String TEXT = "text";
+    private static final FieldType TEXT_FIELD = textFieldType();
+    private static final Sort RELEVANCE = new Sort(SortField.FIELD_SCORE, new SortField(ID_SORT, SortField.Type.LONG, true));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int reindexBatchSize;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Documents written by a reindex carry its generation; older ones are swept when it finishes
+    private volatile long generation = System.currentTimeMillis();
+
+    public record Hit(Long id, float score, String titleHighlight, String textHighlight) {
+    }
+
+    public record Page(List<Hit> hits, String nextCursor) {
+    }
+
+    public ContentSearchIndex(JdbcTemplate jdbcTemplate,
+                              @Value("${search.index.path:search-index}") String indexPath,
+                              @Value("${search.reindex.batch-size:1000}") int reindexBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reindexBatchSize = reindexBatchSize;
+        try {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            this.writer = new IndexWriter(FSDirectory.open(Path.of(indexPath)), config);
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open search index at " + indexPath, e);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onContentTextChanged(ContentTextChangedEvent event) {
+        if (event.type() != ContentType.POST) {
+            return;
+        }
+        try {
+            PlatformThreads.run(() -> index(event.contentId(), event.title(), event.text()));
+        } catch (IOException e) {
+            logger.error("Failed to index content {}", event.contentId(), e);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        try {
+            Term[] terms = event.contentIds().stream().map(id -> new Term(ID, id.toString())).toArray(Term[]::new);
+            PlatformThreads.run(() -> writer.deleteDocuments(terms));
+        } catch (IOException e) {
+            logger.error("Failed to remove {} contents from the search index", event.contentIds().size(), e);
+        }
+    }
+
+    /**
+     * Posts matching {@code q}, best first. The query accepts the simple query syntax
+     * (quoted phrases, {@code +}, {@code -}, {@code |}, trailing {@code *}); terms are ANDed.
+     */
+    public Page search(String q, int limit, String cursor) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, Map.of(TITLE, 2.0f, TEXT, 1.0f));
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(q);
+
+        SearchCursor position = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Search index is unavailable", e);
+        }
+        try {
+            int maxDoc = searcher.getIndexReader().maxDoc();
+            if (maxDoc == 0) {
+                return new Page(List.of(), null);
+            }
+            FieldDoc after = null;
+            if (position != null) {
+                // Ids are unique, so the sort values alone place the cursor; the highest doc
+                // number keeps the cursor's own hit from reappearing on the next page
+                after = new FieldDoc(maxDoc - 1, position.score(), new Object[]{position.score(), position.id()});
+            }
+            // One extra hit tells us whether another page exists
+            TopFieldDocs top = searcher.searchAfter(after, query, limit + 1, RELEVANCE, true);
+            ScoreDoc[] docs = top.scoreDocs;
+            int count = Math.min(docs.length, limit);
+            TopFieldDocs page = new TopFieldDocs(top.totalHits, Arrays.copyOf(docs, count), top.fields);
+
+            Map<String, String[]> highlights = UnifiedHighlighter.builder(searcher, analyzer).build()
+                    .highlightFields(new String[]{TITLE, TEXT}, query, page, new int[]{1, 2});
+            StoredFields storedFields = searcher.storedFields();
+            List<Hit> hits = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Long id = Long.valueOf(storedFields.document(docs[i].doc).get(ID));
+                hits.add(new Hit(id, docs[i].score, highlights.get(TITLE)[i], highlights.get(TEXT)[i]));
+            }
+
+            String nextCursor = null;
+            if (docs.length > limit) {
+                Hit last = hits.get(count - 1);
+                nextCursor = new SearchCursor(last.score(), last.id()).encode();
+            }
+            return new Page(hits, nextCursor);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Search failed for query: " + q, e);
+        } finally {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                logger.warn("Failed to release index searcher", e);
+            }
+        }
+    }
+
+    /**
+     * Re-indexes every post, streaming the contents table in id order one batch at a
+     * time, then drops documents for posts that no longer exist.
+     */
+    public long reindex() throws IOException {
+        long started = System.currentTimeMillis();
+        generation = Math.max(started, generation + 1);
+        long reindexGeneration = generation;
+
+        long indexed = 0;
+        long afterId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, title, text FROM contents WHERE type = 'POST' AND id > ? ORDER BY id LIMIT ?",
+                    (rs, rowNum) -> new Object[]{rs.getLong("id"), rs.getString("title"), rs.getString("text")},
+                    afterId, reindexBatchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (Object[] row : rows) {
+                index((Long) row[0], (String) row[1], (String) row[2]);
+            }
+            indexed += rows.size();
+            afterId = (Long) rows.get(rows.size() - 1)[0];
+        }
+
+        writer.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, reindexGeneration - 1));
+        writer.commit();
+        searcherManager.maybeRefreshBlocking();
+        logger.info("Re-indexed {} posts in {} ms", indexed, System.currentTimeMillis() - started);
+        return indexed;
+    }
+
+    public int size() {
+        return writer.getDocStats().numDocs;
+    }
+
+    // Blocking, so a caller racing the scheduled refresh still sees its own writes afterwards
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        PlatformThreads.run(searcherManager::maybeRefreshBlocking);
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            PlatformThreads.run(writer::commit);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    private void index(Long id, String title, String text) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(ID, id.toString(), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_SORT, id));
+        document.add(new LongPoint(GENERATION, generation));
+        document.add(new Field(TITLE, title == null ? "" : title, TEXT_FIELD));
+        document.add(new Field(TEXT, text == null ? "" : text, TEXT_FIELD));
+        writer.updateDocument(new Term(ID, id.toString()), document);
+    }
+
+    // Offsets in the postings let the highlighter skip re-analysing stored text
+    private static FieldType textFieldType() {
+        FieldType type = new FieldType();
+        type.setTokenized(true);
+        type.setStored(true);
+        type.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        type.freeze();
+        return type;
+    }
+}
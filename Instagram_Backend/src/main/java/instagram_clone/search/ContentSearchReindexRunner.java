@@ -0,0 +1,38 @@
+package instagram_clone.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Rebuilds the search index at startup when it is empty, or when the application
+ * is started with {@code --reindex-search}.
+ */
+@Component
+public class ContentSearchReindexRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ContentSearchReindexRunner.class);
+
+    private final ContentSearchIndex searchIndex;
+    private final boolean reindexWhenEmpty;
+
+    public ContentSearchReindexRunner(ContentSearchIndex searchIndex,
+                                      @Value("${search.reindex.when-empty:true}") boolean reindexWhenEmpty) {
+        this.searchIndex = searchIndex;
+        this.reindexWhenEmpty = reindexWhenEmpty;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (args.containsOption("reindex-search")) {
+            searchIndex.reindex();
+        } else if (reindexWhenEmpty && searchIndex.size() == 0) {
+            logger.info("Search index is empty, indexing existing posts");
+            searchIndex.reindex();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package instagram_clone.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import instagram_clone.model.UserRole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and verifies short-lived access tokens of the form
+ * {@code userId:role:issuedAt:expiresAt:tokenId.signature}, signed with
+ * HMAC-SHA256, so a request is authenticated without BCrypt or a users lookup.
+ * Recently verified tokens skip the HMAC; expiry and revocation are checked on
+ * every request. Revocations are kept in memory only until the tokens they
+ * cover have expired; {@link TokenRevocations} persists them and shares them
+ * between instances.
+ */
+@Component
+public class SessionTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(SessionTokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MAX_TOKEN_LENGTH = 256;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Mac prototype;
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<String, Session> verified;
+    // Token id -> expiry of the revoked token
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // User id -> time before which all of the user's tokens are revoked
+    private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    public record Session(Long userId, UserRole role, long issuedAt, long expiresAt, String tokenId) {
+        public boolean isAdmin() {
+            return role == UserRole.ADMIN;
+        }
+
+        // Whether the session may change data owned by the given user
+        public boolean mayActFor(Long ownerId) {
+            return userId.equals(ownerId) || isAdmin();
+        }
+    }
+
+    public record IssuedToken(String token, long expiresAt) {
+    }
+
+    public SessionTokenService(@Value("${auth.token.secret:}") String secret,
+                               @Value("${auth.token.ttl-seconds:3600}") long ttlSeconds,
+                               @Value("${auth.token.cache-size:10000}") long cacheSize) {
+        byte[] key;
+        if (secret.isBlank()) {
+            key = new byte[32];
+            random.nextBytes(key);
+            logger.warn("auth.token.secret is not set; tokens will not survive a restart or work across instances");
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            this.prototype = Mac.getInstance(ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+        }
+        this.ttlMillis = ttlSeconds * 1000;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(Math.max(ttlMillis, 1)))
+                .build();
+    }
+
+    public IssuedToken issue(Long userId, UserRole role) {
+        long now = System.currentTimeMillis();
+        byte[] tokenId = new byte[9];
+        random.nextBytes(tokenId);
+        String payload = userId + ":" + role.name() + ":" + now + ":" + (now + ttlMillis) + ":" + ENCODER.encodeToString(tokenId);
+        return new IssuedToken(payload + "." + ENCODER.encodeToString(sign(payload)), now + ttlMillis);
+    }
+
+    /**
+     * @return the token's session, or empty if it is malformed, forged, expired or revoked
+     */
+    public Optional<Session> verify(String token) {
+        Session session = verified.getIfPresent(token);
+        if (session == null) {
+            session = parse(token);
+            if (session == null) {
+                return Optional.empty();
+            }
+            verified.put(token, session);
+        }
+        return isLive(session, System.currentTimeMillis()) ? Optional.of(session) : Optional.empty();
+    }
+
+    /**
+     * @return the revoked token's session, or empty if the token was not valid anyway
+     */
+    public Optional<Session> revoke(String token) {
+        Optional<Session> session = verify(token);
+        session.ifPresent(live -> revokeToken(live.tokenId(), live.expiresAt()));
+        return session;
+    }
+
+    public void revokeToken(String tokenId, long expiresAt) {
+        revokedTokens.put(tokenId, expiresAt);
+    }
+
+    /**
+     * Revokes every token issued to the user so far, e.g. after a ban or role change.
+     *
+     * @return the time before which the user's tokens are no longer accepted
+     */
+    public long revokeUser(Long userId) {
+        long now = System.currentTimeMillis();
+        revokeUser(userId, now);
+        return now;
+    }
+
+    // Revocations only ever move forward, whichever instance or refresh they come from
+    public void revokeUser(Long userId, long revokedBefore) {
+        revokedUsers.merge(userId, revokedBefore, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.revocation-prune-interval-ms:60000}")
+    public void pruneRevocations() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt + ttlMillis <= now);
+    }
+
+    private boolean isLive(Session session, long now) {
+        if (now >= session.expiresAt()) {
+            return false;
+        }
+        if (!revokedTokens.isEmpty() && revokedTokens.containsKey(session.tokenId())) {
+            return false;
+        }
+        Long revokedAt = revokedUsers.isEmpty() ? null : revokedUsers.get(session.userId());
+        return revokedAt == null || session.issuedAt() > revokedAt;
+    }
+
+    private Session parse(String token) {
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0 || token.length() > MAX_TOKEN_LENGTH) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+
+        String[] fields = payload.split(":");
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            return new Session(Long.valueOf(fields[0]), UserRole.valueOf(fields[1]),
+                    Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Mac instances are not thread-safe; cloning the keyed prototype is far cheaper than re-initializing
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " provider does not support cloning", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package instagram_clone.security;
+
+import instagram_clone.model.RevokedToken;
+import instagram_clone.model.UserTokenRevocation;
+import instagram_clone.repository.RevokedTokenRepository;
+import instagram_clone.repository.UserTokenRevocationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares token revocations between instances and across restarts: single
+ * tokens revoked at logout through {@code revoked_tokens}, and per-user ones,
+ * such as bans and role changes, through {@code user_token_revocations}.
+ * Requests never read the tables: every instance polls them into the in-memory
+ * lists of {@link SessionTokenService}, so a revocation made elsewhere or before
+ * a restart takes effect within one refresh interval.
+ */
+@Component
+public class TokenRevocations {
+    private final SessionTokenService sessionTokenService;
+    private final UserTokenRevocationRepository userRevocationRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long ttlMillis;
+
+    public TokenRevocations(SessionTokenService sessionTokenService,
+                            UserTokenRevocationRepository userRevocationRepository,
+                            RevokedTokenRepository revokedTokenRepository,
+                            @Value("${auth.token.ttl-seconds:3600}") long ttlSeconds) {
+        this.sessionTokenService = sessionTokenService;
+        this.userRevocationRepository = userRevocationRepository;
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    // Tokens that are already invalid here are not recorded
+    public void revokeToken(String token) {
+        sessionTokenService.revoke(token).ifPresent(session ->
+                revokedTokenRepository.save(new RevokedToken(session.tokenId(), session.expiresAt())));
+    }
+
+    // Joins the caller's transaction, so a rolled back ban is not published to other instances
+    public void revokeUser(Long userId) {
+        long revokedBefore = sessionTokenService.revokeUser(userId);
+        userRevocationRepository.save(new UserTokenRevocation(userId, revokedBefore));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token.revocation-refresh-interval-ms:5000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        for (RevokedToken revoked : revokedTokenRepository.findByExpiresAtGreaterThan(now)) {
+            sessionTokenService.revokeToken(revoked.getTokenId(), revoked.getExpiresAt());
+        }
+        revokedTokenRepository.deleteExpired(now);
+
+        long live = now - ttlMillis;
+        for (UserTokenRevocation revocation : userRevocationRepository.findByRevokedBeforeGreaterThan(live)) {
+            sessionTokenService.revokeUser(revocation.getUserId(), revocation.getRevokedBefore());
+        }
+        userRevocationRepository.deleteExpired(live);
+    }
+}
@@ -0,0 +1,40 @@
+package instagram_clone.service;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Converts a repository result stream batch by batch, clearing the persistence
+ * context after each batch so a full-table read holds at most one batch of
+ * entities regardless of table size. Callers run inside a read-only transaction
+ * and must not hold on to the entities past the converter.
+ */
+final class BatchedStreams {
+    // Matches the fetch size hinted on the streaming repository queries
+    static final int BATCH_SIZE = 500;
+
+    private BatchedStreams() {
+    }
+
+    static <E, D> void forEach(Stream<E> rows, EntityManager entityManager,
+                               Function<List<E>, List<D>> converter, Consumer<D> action) {
+        try (rows) {
+            Iterator<E> iterator = rows.iterator();
+            List<E> batch = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    converter.apply(batch).forEach(action);
+                    batch.clear();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package instagram_clone.service;
+
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dtoconverter.ContentDTOAssembler;
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.ContentVotedEvent;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.VoteType;
+import instagram_clone.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Vote ingestion for {@code votes.ingestion.mode=coalescing}. Votes are staged
+ * in memory, striped by content id, and written every flush interval in one
+ * transaction per stripe: batched vote row changes, one counter update per
+ * content and one score ledger event per user. Repeated clicks on a hot post
+ * therefore cost one counter update and one ledger row per flush instead of a
+ * transaction each. A stripe whose write keeps failing drops only its own votes.
+ * <p>
+ * Only the final vote of each user is buffered. The flush locks the stored rows
+ * it replaces and derives counter and score deltas from them, so votes written
+ * meanwhile through {@link VoteService} or by another instance are neither
+ * inserted twice nor counted twice.
+ * <p>
+ * Responses add the buffered counter changes to the stored counters. A stripe's
+ * commit and the retiring of its in-flight changes happen under one write lock
+ * that responses read under, so a vote is never counted both ways.
+ * <p>
+ * Staged votes are lost if the process dies before the next flush. The window
+ * is bounded by the flush interval and by {@code max-pending}: once that many
+ * votes are staged, the submitting request flushes synchronously.
+ */
+@Service
+public class CoalescingVoteIngestor {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingVoteIngestor.class);
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+    private static final int LOCK_CHUNK_SIZE = 500;
+
+    private static final String DELETE_VOTE_SQL = "DELETE FROM votes WHERE user_id = ? AND content_id = ?";
+    private static final String UPDATE_VOTE_SQL = "UPDATE votes SET type = ?, date_time = ? WHERE user_id = ? AND content_id = ?";
+    private static final String INSERT_VOTE_SQL = "INSERT INTO votes (user_id, content_id, type, date_time) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_COUNTS_SQL =
+            "UPDATE contents SET upvote_count = upvote_count + ?, downvote_count = downvote_count + ? WHERE id = ?";
+    private static final String INSERT_SCORE_EVENT_SQL =
+            "INSERT INTO score_events (user_id, delta, vote_id, created_at, compacted) VALUES (?, ?, NULL, ?, FALSE)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final ScoreCalculationService scoreCalculationService;
+    private final ContentDTOAssembler contentDTOAssembler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Stripe[] stripes;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer flushTimer;
+    private final Counter droppedVotes;
+
+    public CoalescingVoteIngestor(JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  UserRepository userRepository,
+                                  ScoreCalculationService scoreCalculationService,
+                                  ContentDTOAssembler contentDTOAssembler,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${votes.ingestion.mode:direct}") String mode,
+                                  @Value("${votes.ingestion.max-pending:10000}") int maxPending,
+                                  @Value("${votes.ingestion.stripes:64}") int stripeCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.scoreCalculationService = scoreCalculationService;
+        this.contentDTOAssembler = contentDTOAssembler;
+        this.eventPublisher = eventPublisher;
+        this.enabled = "coalescing".equalsIgnoreCase(mode);
+        this.maxPending = maxPending;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.flushTimer = Timer.builder("votes.ingestion.flush")
+                .description("Time to write one batch of coalesced votes")
+                .register(meterRegistry);
+        this.droppedVotes = Counter.builder("votes.ingestion.dropped")
+                .description("Staged votes discarded after repeated flush failures")
+                .register(meterRegistry);
+        Gauge.builder("votes.ingestion.pending", pending, AtomicInteger::get)
+                .description("Votes accepted but not yet written")
+                .register(meterRegistry);
+    }
+
+    private record VoteKey(Long contentId, Long userId) {
+    }
+
+    private record PendingVote(VoteType current, LocalDateTime dateTime, VoteTarget target) {
+    }
+
+    private record VoteTarget(Long authorId, ContentType type) {
+    }
+
+    private static final class Batch {
+        final Map<VoteKey, PendingVote> votes = new HashMap<>();
+        // Optimistic counter changes, only added to responses; the flush recomputes them from the stored votes
+        final Map<Long, int[]> counts = new HashMap<>();
+
+        boolean isEmpty() {
+            return votes.isEmpty();
+        }
+
+        void addCount(Long contentId, int up, int down) {
+            addCount(counts, contentId, up, down);
+        }
+
+        static void addCount(Map<Long, int[]> counts, Long contentId, int up, int down) {
+            int[] delta = counts.computeIfAbsent(contentId, id -> new int[2]);
+            delta[0] += up;
+            delta[1] += down;
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        // Write-held from just before a flush commits until its in-flight counts are retired
+        final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+        Batch staged = new Batch();
+        Batch inflight = new Batch();
+        // Bumped whenever an in-flight batch is retired, so a stale database read can be detected
+        long generation;
+        // Contents deleted while the in-flight batch was being written; dropped if it has to be requeued
+        final Set<Long> deletedInflight = new HashSet<>();
+        int failedAttempts;
+
+        PendingVote lookup(VoteKey key) {
+            PendingVote vote = staged.votes.get(key);
+            if (vote != null) {
+                return vote;
+            }
+            return inflight.votes.get(key);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ContentDTO submitVote(Long contentId, Long userId, VoteType voteType) {
+        // Repeating the current vote withdraws it, as in ContentService.addVote
+        return stage(contentId, userId, current -> current == voteType ? null : voteType);
+    }
+
+    public ContentDTO withdrawVote(Long contentId, Long userId) {
+        return stage(contentId, userId, current -> null);
+    }
+
+    private ContentDTO stage(Long contentId, Long userId, UnaryOperator<VoteType> transition) {
+        VoteTarget target = findTarget(contentId);
+        if (target.authorId().equals(userId)) {
+            throw new RuntimeException("Users cannot vote on their own content");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
+
+        VoteKey key = new VoteKey(contentId, userId);
+        Stripe stripe = stripeFor(contentId);
+        boolean added = false;
+        while (!added) {
+            long generation;
+            PendingVote known;
+            stripe.lock.lock();
+            try {
+                known = stripe.lookup(key);
+                generation = stripe.generation;
+            } finally {
+                stripe.lock.unlock();
+            }
+            VoteType stored = known == null ? findStoredVote(contentId, userId) : null;
+
+            stripe.lock.lock();
+            try {
+                PendingVote previous = stripe.lookup(key);
+                if (previous == null) {
+                    if (known != null || stripe.generation != generation) {
+                        continue;
+                    }
+                    previous = new PendingVote(stored, null, target);
+                }
+                VoteType oldType = previous.current();
+                VoteType newType = transition.apply(oldType);
+                if (!stripe.staged.votes.containsKey(key)) {
+                    pending.incrementAndGet();
+                }
+                stripe.staged.votes.put(key, new PendingVote(newType, LocalDateTime.now(), target));
+                stripe.staged.addCount(contentId, countDelta(VoteType.UPVOTE, oldType, newType),
+                        countDelta(VoteType.DOWN_VOTE, oldType, newType));
+                added = true;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        if (pending.get() >= maxPending) {
+            flush();
+        }
+        return withUnflushedCounts(contentId, stripe);
+    }
+
+    // The stored counters plus whatever is still buffered for this content
+    private ContentDTO withUnflushedCounts(Long contentId, Stripe stripe) {
+        // Held across the read so the counters and the in-flight changes come from the same side of a commit
+        stripe.commitLock.readLock().lock();
+        try {
+            List<ContentDTO> found = contentDTOAssembler.assemble(List.of(contentId), ImageSize.FULL);
+            if (found.isEmpty()) {
+                throw new RuntimeException("Content not found with id: " + contentId);
+            }
+            ContentDTO dto = found.get(0);
+            stripe.lock.lock();
+            try {
+                for (Batch batch : new Batch[]{stripe.staged, stripe.inflight}) {
+                    int[] delta = batch.counts.get(contentId);
+                    if (delta != null) {
+                        dto.setUpvotes(dto.getUpvotes() + delta[0]);
+                        dto.setDownvotes(dto.getDownvotes() + delta[1]);
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+            return dto;
+        } finally {
+            stripe.commitLock.readLock().unlock();
+        }
+    }
+
+    // Votes on deleted content would fail the flush; drop them
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        for (Long contentId : event.contentIds()) {
+            Stripe stripe = stripeFor(contentId);
+            stripe.lock.lock();
+            try {
+                discard(stripe.staged, contentId);
+                // The in-flight batch is being written without the lock; it is pruned only if it comes back
+                stripe.deletedInflight.add(contentId);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void discard(Batch batch, Long contentId) {
+        Iterator<Map.Entry<VoteKey, PendingVote>> votes = batch.votes.entrySet().iterator();
+        while (votes.hasNext()) {
+            Map.Entry<VoteKey, PendingVote> entry = votes.next();
+            if (!entry.getKey().contentId().equals(contentId)) {
+                continue;
+            }
+            votes.remove();
+            pending.decrementAndGet();
+        }
+        batch.counts.remove(contentId);
+    }
+
+    @Scheduled(fixedDelayString = "${votes.ingestion.flush-interval-ms:50}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            for (Stripe stripe : stripes) {
+                flush(stripe);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Each stripe commits on its own, so a bad row only holds back the votes sharing its stripe
+    private void flush(Stripe stripe) {
+        Batch batch;
+        stripe.lock.lock();
+        try {
+            stripe.inflight = stripe.staged;
+            stripe.staged = new Batch();
+            batch = stripe.inflight;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean written;
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                write(batch);
+                retireCountsOnCommit(stripe);
+            }));
+            written = true;
+            stripe.failedAttempts = 0;
+        } catch (RuntimeException e) {
+            written = false;
+            stripe.failedAttempts++;
+            logger.error("Failed to flush {} staged votes (attempt {}): {}",
+                    batch.votes.size(), stripe.failedAttempts, e.getMessage());
+        }
+
+        stripe.lock.lock();
+        try {
+            if (written) {
+                pending.addAndGet(-batch.votes.size());
+            } else if (stripe.failedAttempts < MAX_FLUSH_ATTEMPTS) {
+                requeue(stripe);
+            } else {
+                droppedVotes.increment(batch.votes.size());
+                pending.addAndGet(-batch.votes.size());
+                stripe.failedAttempts = 0;
+            }
+            stripe.inflight = new Batch();
+            stripe.deletedInflight.clear();
+            stripe.generation++;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void retireCountsOnCommit(Stripe stripe) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                stripe.commitLock.writeLock().lock();
+            }
+
+            // Runs after the cache evictions of the commit, which are afterCommit callbacks
+            @Override
+            public void afterCompletion(int status) {
+                if (!stripe.commitLock.isWriteLockedByCurrentThread()) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        stripe.lock.lock();
+                        try {
+                            stripe.inflight.counts.clear();
+                        } finally {
+                            stripe.lock.unlock();
+                        }
+                    }
+                } finally {
+                    stripe.commitLock.writeLock().unlock();
+                }
+            }
+        });
+    }
+
+    // Puts a failed batch back behind anything staged since, which holds the newer vote
+    private void requeue(Stripe stripe) {
+        Batch failed = stripe.inflight;
+        stripe.deletedInflight.forEach(contentId -> discard(failed, contentId));
+        failed.votes.forEach((key, vote) -> {
+            if (stripe.staged.votes.putIfAbsent(key, vote) != null) {
+                pending.decrementAndGet();
+            }
+        });
+        failed.counts.forEach((id, delta) -> stripe.staged.addCount(id, delta[0], delta[1]));
+    }
+
+    private void write(Batch batch) {
+        Map<VoteKey, VoteType> stored = lockStoredVotes(batch.votes.keySet());
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Map<Long, int[]> counts = new TreeMap<>();
+        Map<Long, Double> scores = new HashMap<>();
+        batch.votes.forEach((key, vote) -> {
+            VoteType replaced = stored.get(key);
+            if (replaced == vote.current()) {
+                return;
+            }
+            if (vote.current() == null) {
+                deletes.add(new Object[]{key.userId(), key.contentId()});
+            } else if (replaced == null) {
+                inserts.add(new Object[]{key.userId(), key.contentId(), vote.current().name(), Timestamp.valueOf(vote.dateTime())});
+            } else {
+                updates.add(new Object[]{vote.current().name(), Timestamp.valueOf(vote.dateTime()), key.userId(), key.contentId()});
+            }
+            Batch.addCount(counts, key.contentId(), countDelta(VoteType.UPVOTE, replaced, vote.current()),
+                    countDelta(VoteType.DOWN_VOTE, replaced, vote.current()));
+            ScoreCalculationService.VoteScoreDelta delta = scoreCalculationService.voteDelta(
+                    vote.target().type(), replaced, vote.current());
+            scores.merge(vote.target().authorId(), delta.authorDelta(), Double::sum);
+            scores.merge(key.userId(), delta.voterDelta(), Double::sum);
+        });
+        jdbcTemplate.batchUpdate(DELETE_VOTE_SQL, deletes);
+        jdbcTemplate.batchUpdate(UPDATE_VOTE_SQL, updates);
+        jdbcTemplate.batchUpdate(INSERT_VOTE_SQL, inserts);
+
+        // Ordered by id so concurrent flushes and direct writes lock rows in the same order
+        List<Object[]> countUpdates = new ArrayList<>();
+        counts.forEach((id, delta) -> {
+            if (delta[0] != 0 || delta[1] != 0) {
+                countUpdates.add(new Object[]{delta[0], delta[1], id});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_COUNTS_SQL, countUpdates);
+        if (!countUpdates.isEmpty()) {
+            eventPublisher.publishEvent(new ContentVotedEvent(countUpdates.stream().map(row -> (Long) row[2]).toList()));
+        }
+
+        // One ledger event per user and stripe, covering all of that user's votes in the batch
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> scoreEvents = new ArrayList<>();
+        scores.forEach((id, delta) -> {
+            if (delta != 0.0) {
+                scoreEvents.add(new Object[]{id, delta, now});
+            }
+        });
+        jdbcTemplate.batchUpdate(INSERT_SCORE_EVENT_SQL, scoreEvents);
+    }
+
+    // The stored votes the batch replaces, locked until it commits
+    private Map<VoteKey, VoteType> lockStoredVotes(Set<VoteKey> keys) {
+        List<VoteKey> ordered = keys.stream()
+                .sorted(Comparator.comparing(VoteKey::contentId).thenComparing(VoteKey::userId))
+                .toList();
+        Map<VoteKey, VoteType> stored = new HashMap<>();
+        for (int from = 0; from < ordered.size(); from += LOCK_CHUNK_SIZE) {
+            List<VoteKey> chunk = ordered.subList(from, Math.min(from + LOCK_CHUNK_SIZE, ordered.size()));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i).userId();
+                args[2 * i + 1] = chunk.get(i).contentId();
+            }
+            jdbcTemplate.query("SELECT user_id, content_id, type FROM votes WHERE "
+                            + String.join(" OR ", Collections.nCopies(chunk.size(), "(user_id = ? AND content_id = ?)"))
+                            + " FOR UPDATE",
+                    rs -> {
+                        stored.put(new VoteKey(rs.getLong("content_id"), rs.getLong("user_id")),
+                                VoteType.valueOf(rs.getString("type")));
+                    }, args);
+        }
+        return stored;
+    }
+
+    private VoteTarget findTarget(Long contentId) {
+        List<VoteTarget> targets = jdbcTemplate.query("SELECT author_id, type FROM contents WHERE id = ?",
+                (rs, rowNum) -> new VoteTarget(rs.getLong("author_id"), ContentType.valueOf(rs.getString("type"))),
+                contentId);
+        if (targets.isEmpty()) {
+            throw new RuntimeException("Content not found with id: " + contentId);
+        }
+        return targets.get(0);
+    }
+
+    private VoteType findStoredVote(Long contentId, Long userId) {
+        List<String> types = jdbcTemplate.queryForList("SELECT type FROM votes WHERE user_id = ? AND content_id = ?",
+                String.class, userId, contentId);
+        return types.isEmpty() ? null : VoteType.valueOf(types.get(0));
+    }
+
+    private Stripe stripeFor(Long contentId) {
+        return stripes[Math.floorMod(Long.hashCode(contentId), stripes.length)];
+    }
+
+    private static int countDelta(VoteType counted, VoteType oldType, VoteType newType) {
+        return (newType == counted ? 1 : 0) - (oldType == counted ? 1 : 0);
+    }
+}
@@ -0,0 +1,199 @@
+package instagram_clone.service;
+
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.VoteType;
+import instagram_clone.util.ContentPath;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes a content row together with its whole reply subtree using set-based
+ * statements. The subtree is found through the materialized path and removed
+ * deepest rows first, in batches that each commit on their own: score
+ * reversal for the batch's votes, then votes, tag links and the contents.
+ * Until the path backfill has finished, the subtree is found through parent
+ * links instead, one level per query.
+ * Subtrees above {@code contents.delete.background-threshold} rows are
+ * deleted on a background thread.
+ */
+@Service
+public class ContentDeletionService {
+    private static final Logger logger = LoggerFactory.getLogger(ContentDeletionService.class);
+
+    private static final String SUBTREE_RANGE = "path >= :fromPath AND path < :toPath";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScoreCalculationService scoreCalculationService;
+    private final ScoreLedgerService scoreLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContentPathBackfillRunner contentPathBackfill;
+    private final int batchSize;
+    private final int backgroundThreshold;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("content-delete-", 0).factory());
+
+    public ContentDeletionService(NamedParameterJdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  ScoreCalculationService scoreCalculationService,
+                                  ScoreLedgerService scoreLedgerService,
+                                  ApplicationEventPublisher eventPublisher,
+                                  ContentPathBackfillRunner contentPathBackfill,
+                                  @Value("${contents.delete.batch-size:500}") int batchSize,
+                                  @Value("${contents.delete.background-threshold:2000}") int backgroundThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.scoreCalculationService = scoreCalculationService;
+        this.scoreLedgerService = scoreLedgerService;
+        this.eventPublisher = eventPublisher;
+        this.contentPathBackfill = contentPathBackfill;
+        this.batchSize = batchSize;
+        this.backgroundThreshold = backgroundThreshold;
+    }
+
+    /**
+     * @return true if the subtree is gone on return, false if it was queued for background deletion
+     */
+    public boolean deleteSubtree(Long id) {
+        List<String> paths = jdbcTemplate.queryForList("SELECT path FROM contents WHERE id = :id",
+                new MapSqlParameterSource("id", id), String.class);
+        if (paths.isEmpty()) {
+            throw new RuntimeException("Content not found with id: " + id);
+        }
+        if (paths.get(0) == null || !contentPathBackfill.isComplete()) {
+            // Rows the backfill has not reached yet would be missed by the path range
+            int size = subtreeLevels(id).stream().mapToInt(List::size).sum();
+            return run(id, size, () -> deleteLinked(id));
+        }
+        MapSqlParameterSource range = new MapSqlParameterSource()
+                .addValue("fromPath", paths.get(0))
+                .addValue("toPath", ContentPath.subtreeEnd(paths.get(0), id));
+
+        Integer size = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM contents WHERE " + SUBTREE_RANGE,
+                range, Integer.class);
+        return run(id, size != null ? size : 0, () -> deleteRange(range));
+    }
+
+    private boolean run(Long id, int size, Runnable deletion) {
+        if (size > backgroundThreshold) {
+            logger.info("Deleting subtree of content {} ({} rows) in the background", id, size);
+            executor.execute(() -> {
+                try {
+                    deletion.run();
+                } catch (Exception e) {
+                    logger.error("Background deletion of content {} failed", id, e);
+                }
+            });
+            return false;
+        }
+        deletion.run();
+        return true;
+    }
+
+    // Rescans after every batch so replies added meanwhile are picked up too
+    private void deleteRange(MapSqlParameterSource range) {
+        long deleted = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM contents WHERE " + SUBTREE_RANGE + " ORDER BY depth DESC, id LIMIT :limit",
+                    new MapSqlParameterSource(range.getValues()).addValue("limit", batchSize), Long.class);
+            if (ids.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> deleteBatch(ids));
+            deleted += ids.size();
+        }
+        logger.debug("Deleted {} contents", deleted);
+    }
+
+    // Removes the deepest level of a fresh scan each round, so children always go before their parents
+    private void deleteLinked(Long id) {
+        long deleted = 0;
+        for (List<List<Long>> levels = subtreeLevels(id); !levels.isEmpty(); levels = subtreeLevels(id)) {
+            List<Long> deepest = levels.get(levels.size() - 1);
+            for (int from = 0; from < deepest.size(); from += batchSize) {
+                List<Long> ids = deepest.subList(from, Math.min(from + batchSize, deepest.size()));
+                transactionTemplate.executeWithoutResult(status -> deleteBatch(ids));
+            }
+            deleted += deepest.size();
+        }
+        logger.debug("Deleted {} contents", deleted);
+    }
+
+    // Ids of the subtree by depth below its root, root level first; empty once the root is gone
+    private List<List<Long>> subtreeLevels(Long id) {
+        List<List<Long>> levels = new ArrayList<>();
+        List<Long> level = jdbcTemplate.queryForList("SELECT id FROM contents WHERE id = :id",
+                new MapSqlParameterSource("id", id), Long.class);
+        while (!level.isEmpty()) {
+            levels.add(level);
+            List<Long> below = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += batchSize) {
+                below.addAll(jdbcTemplate.queryForList("SELECT id FROM contents WHERE parent_id IN (:ids)",
+                        new MapSqlParameterSource("ids", level.subList(from, Math.min(from + batchSize, level.size()))),
+                        Long.class));
+            }
+            level = below;
+        }
+        return levels;
+    }
+
+    private void deleteBatch(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        reverseScores(params);
+        jdbcTemplate.update("DELETE FROM votes WHERE content_id IN (:ids)", params);
+        jdbcTemplate.update("DELETE FROM content_tags WHERE content_id IN (:ids)", params);
+        // Parent links inside the batch would otherwise make row order matter for the FK check
+        jdbcTemplate.update("UPDATE contents SET parent_id = NULL WHERE id IN (:ids)", params);
+        jdbcTemplate.update("DELETE FROM contents WHERE id IN (:ids)", params);
+        eventPublisher.publishEvent(new ContentDeletedEvent(ids));
+    }
+
+    // Takes back what the batch's votes contributed, as one ledger event per affected user
+    private void reverseScores(MapSqlParameterSource params) {
+        Map<Long, Double> deltas = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT c.author_id, c.type AS content_type, v.type AS vote_type, COUNT(*) AS votes" +
+                " FROM votes v JOIN contents c ON c.id = v.content_id WHERE c.id IN (:ids)" +
+                " GROUP BY c.author_id, c.type, v.type",
+                params,
+                rs -> {
+                    ContentType contentType = ContentType.valueOf(rs.getString("content_type"));
+                    VoteType voteType = VoteType.valueOf(rs.getString("vote_type"));
+                    double authorDelta = scoreCalculationService.voteDelta(contentType, voteType, null).authorDelta();
+                    deltas.merge(rs.getLong("author_id"), authorDelta * rs.getLong("votes"), Double::sum);
+                });
+        jdbcTemplate.query(
+                "SELECT v.user_id, COUNT(*) AS votes FROM votes v JOIN contents c ON c.id = v.content_id" +
+                " WHERE c.id IN (:ids) AND c.type = 'COMMENT' AND v.type = 'DOWN_VOTE' GROUP BY v.user_id",
+                params,
+                rs -> {
+                    double voterDelta = scoreCalculationService
+                            .voteDelta(ContentType.COMMENT, VoteType.DOWN_VOTE, null).voterDelta();
+                    deltas.merge(rs.getLong("user_id"), voterDelta * rs.getLong("votes"), Double::sum);
+                });
+        scoreLedgerService.recordAll(deltas);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
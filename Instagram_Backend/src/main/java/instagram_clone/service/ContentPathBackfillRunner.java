@@ -0,0 +1,153 @@
+package instagram_clone.service;
+
+import instagram_clone.util.ContentPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns materialized paths to content rows created before paths existed.
+ * Roots are filled first, then each pass fills rows whose parent already has
+ * a path, so a thread of depth d takes d + 1 passes of bounded batches.
+ * Until it finishes, paths of rows it has not reached yet are derived from
+ * their parent links on demand.
+ */
+@Component
+public class ContentPathBackfillRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ContentPathBackfillRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private volatile boolean complete;
+
+    public record Placement(String path, int depth) {
+    }
+
+    public ContentPathBackfillRunner(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedJdbcTemplate,
+                                     @Value("${contents.path-backfill.enabled:true}") boolean enabled,
+                                     @Value("${contents.path-backfill.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    // Whether every row is known to have a path; disabling the backfill asserts that they do
+    public boolean isComplete() {
+        return complete || !enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long filled = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT id FROM contents WHERE parent_id IS NULL AND path IS NULL ORDER BY id LIMIT ?",
+                    rs -> {
+                        long id = rs.getLong("id");
+                        updates.add(new Object[]{ContentPath.segment(id), 0, id});
+                    },
+                    batchSize);
+            jdbcTemplate.query(
+                    "SELECT c.id, p.path, p.depth FROM contents c JOIN contents p ON p.id = c.parent_id" +
+                    " WHERE c.path IS NULL AND p.path IS NOT NULL ORDER BY c.id LIMIT ?",
+                    rs -> {
+                        long id = rs.getLong("id");
+                        updates.add(new Object[]{ContentPath.child(rs.getString("path"), id), rs.getInt("depth") + 1, id});
+                    },
+                    batchSize);
+            if (updates.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate("UPDATE contents SET path = ?, depth = ? WHERE id = ?", updates);
+            filled += updates.size();
+        }
+
+        if (filled > 0) {
+            logger.info("Assigned materialized paths to {} contents", filled);
+        }
+        complete = true;
+    }
+
+    /**
+     * Path and depth of a content row, derived from its nearest ancestor with
+     * a path when the backfill has not reached the row yet.
+     */
+    public Placement placement(long id) {
+        Deque<Long> pending = new ArrayDeque<>();
+        Long next = id;
+        Placement placement = null;
+        while (placement == null) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT parent_id, path, depth FROM contents WHERE id = ?", next);
+            if (rows.isEmpty()) {
+                throw new RuntimeException("Content not found with id: " + next);
+            }
+            Map<String, Object> row = rows.get(0);
+            if (row.get("path") != null) {
+                placement = new Placement((String) row.get("path"), ((Number) row.get("depth")).intValue());
+            } else if (row.get("parent_id") == null) {
+                placement = new Placement(ContentPath.segment(next), 0);
+            } else {
+                pending.push(next);
+                next = ((Number) row.get("parent_id")).longValue();
+            }
+        }
+        while (!pending.isEmpty()) {
+            placement = new Placement(ContentPath.child(placement.path(), pending.pop()), placement.depth() + 1);
+        }
+        return placement;
+    }
+
+    /**
+     * Like {@link instagram_clone.repository.ContentRepository#findPathRange}, as (id, path) rows
+     * in path order, but for the given children of {@code parent} and their descendants found
+     * through parent links, so rows without a path yet are included.
+     */
+    public List<Object[]> subtreeRows(Placement parent, List<Long> childIds, int maxDepth) {
+        List<Object[]> rows = new ArrayList<>();
+        Map<Long, String> level = new HashMap<>();
+        for (Long childId : childIds) {
+            level.put(childId, ContentPath.child(parent.path(), childId));
+        }
+        for (int depth = parent.depth() + 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+            level.forEach((childId, path) -> rows.add(new Object[]{childId, path}));
+            Map<Long, String> paths = level;
+            Map<Long, String> below = new HashMap<>();
+            List<Long> parentIds = new ArrayList<>(paths.keySet());
+            for (int from = 0; from < parentIds.size(); from += batchSize) {
+                namedJdbcTemplate.query("SELECT id, parent_id FROM contents WHERE parent_id IN (:ids)",
+                        new MapSqlParameterSource("ids", parentIds.subList(from, Math.min(from + batchSize, parentIds.size()))),
+                        rs -> {
+                            long childId = rs.getLong("id");
+                            below.put(childId, ContentPath.child(paths.get(rs.getLong("parent_id")), childId));
+                        });
+            }
+            level = below;
+        }
+        rows.sort(Comparator.comparing(row -> (String) row[1]));
+        return rows;
+    }
+}
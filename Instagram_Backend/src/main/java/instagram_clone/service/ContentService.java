@@ -1,45 +1,96 @@
 package instagram_clone.service;
 
+import instagram_clone.cache.EntityCache;
+import instagram_clone.dto.CommentNodeDTO;
 import instagram_clone.dto.ContentCreateDTO;
 import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.CursorPageDTO;
+import instagram_clone.dto.NormalizedPageDTO;
+import instagram_clone.dto.SearchHitDTO;
 import instagram_clone.dto.TagDTO;
 import instagram_clone.dto.ContentUpdateDTO;
-import instagram_clone.dto.ScoreDTO;
 import instagram_clone.dtoconverter.ContentConverter;
 import instagram_clone.dtoconverter.ContentCreateConverter;
+import instagram_clone.dtoconverter.ContentDTOAssembler;
 import instagram_clone.dtoconverter.ContentUpdateConverter;
+import instagram_clone.event.ContentCreatedEvent;
+import instagram_clone.event.ContentTextChangedEvent;
+import instagram_clone.event.ContentVotedEvent;
 import instagram_clone.model.*;
 import instagram_clone.repository.ContentRepository;
 import instagram_clone.repository.UserRepository;
 import instagram_clone.repository.TagRepository;
+import instagram_clone.repository.VoteRepository;
+import instagram_clone.search.ContentSearchIndex;
+import instagram_clone.util.ContentPath;
+import instagram_clone.util.FeedCursor;
+import org.springframework.data.domain.Limit;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.hibernate.Hibernate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.HashSet;
-import java.util.Set;
 import java.time.LocalDateTime;
 
 @Service
 public class ContentService {
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+
     private final ContentRepository contentRepository;
     private final UserRepository userRepository;
     private final ContentCreateConverter contentCreateConverter;
     private final TagRepository tagRepository;
     private final ScoreCalculationService scoreCalculationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContentDTOAssembler contentDTOAssembler;
+    private final VoteRepository voteRepository;
+    private final ScoreLedgerService scoreLedgerService;
+    private final ContentDeletionService contentDeletionService;
+    private final TagDictionary tagDictionary;
+    private final TagBitmapIndex tagBitmapIndex;
+    private final ContentSearchIndex contentSearchIndex;
+    private final HotPostRanking hotPostRanking;
+    private final EntityCache entityCache;
+    private final ContentPathBackfillRunner contentPathBackfill;
 
     public ContentService(ContentRepository contentRepository, 
                          UserRepository userRepository,
                          ContentCreateConverter contentCreateConverter,
                          TagRepository tagRepository,
-                         ScoreCalculationService scoreCalculationService) {
+                         ScoreCalculationService scoreCalculationService,
+                         ApplicationEventPublisher eventPublisher,
+                         ContentDTOAssembler contentDTOAssembler,
+                         VoteRepository voteRepository,
+                         ScoreLedgerService scoreLedgerService,
+                         ContentDeletionService contentDeletionService,
+                         TagDictionary tagDictionary,
+                         TagBitmapIndex tagBitmapIndex,
+                         ContentSearchIndex contentSearchIndex,
+                         HotPostRanking hotPostRanking,
+                         EntityCache entityCache,
+                         ContentPathBackfillRunner contentPathBackfill) {
         this.contentRepository = contentRepository;
         this.userRepository = userRepository;
         this.contentCreateConverter = contentCreateConverter;
         this.tagRepository = tagRepository;
         this.scoreCalculationService = scoreCalculationService;
+        this.eventPublisher = eventPublisher;
+        this.contentDTOAssembler = contentDTOAssembler;
+        this.voteRepository = voteRepository;
+        this.scoreLedgerService = scoreLedgerService;
+        this.contentDeletionService = contentDeletionService;
+        this.tagDictionary = tagDictionary;
+        this.tagBitmapIndex = tagBitmapIndex;
+        this.contentSearchIndex = contentSearchIndex;
+        this.hotPostRanking = hotPostRanking;
+        this.entityCache = entityCache;
+        this.contentPathBackfill = contentPathBackfill;
     }
 
     @Transactional
@@ -48,15 +99,23 @@ public class ContentService {
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + contentCreateDTO.getAuthorId()));
 
         Content content = contentCreateConverter.toEntity(contentCreateDTO, author);
+        ContentPathBackfillRunner.Placement parentPlacement = null;
         
         if (contentCreateDTO.getParentId() != null) {
             Content parent = contentRepository.findById(contentCreateDTO.getParentId())
                     .orElseThrow(() -> new RuntimeException("Parent content not found with id: " + contentCreateDTO.getParentId()));
+            parentPlacement = parent.getPath() != null
+                    ? new ContentPathBackfillRunner.Placement(parent.getPath(), parent.getDepth())
+                    : contentPathBackfill.placement(parent.getId());
+            if (parentPlacement.depth() >= ContentPath.MAX_DEPTH) {
+                throw new RuntimeException("Comment thread is too deep to reply to content with id: " + parent.getId());
+            }
             content.setParent(parent);
             
             if (parent.getType() == ContentType.POST && parent.getStatus() == PostStatus.JUST_POSTED) {
                 parent.setStatus(PostStatus.FIRST_REACTIONS);
                 contentRepository.save(parent);
+                entityCache.evictContent(parent.getId());
             }
         } else {
             content.setStatus(PostStatus.JUST_POSTED);
@@ -64,6 +123,13 @@ public class ContentService {
         
         System.err.println("Saving content with status: " + content.getStatus());
         Content savedContent = contentRepository.save(content);
+        savedContent.setPath(ContentPath.child(parentPlacement != null ? parentPlacement.path() : null, savedContent.getId()));
+        savedContent.setDepth(parentPlacement != null ? parentPlacement.depth() + 1 : 0);
+        eventPublisher.publishEvent(new ContentCreatedEvent(savedContent.getId(), savedContent.getType(),
+                author.getId(), contentCreateDTO.getParentId(), savedContent.getImageHash(), savedContent.getDateTime(),
+                savedContent.getTags().stream().map(Tag::getId).collect(Collectors.toList())));
+        eventPublisher.publishEvent(new ContentTextChangedEvent(savedContent.getId(), savedContent.getType(),
+                savedContent.getTitle(), savedContent.getText()));
         return ContentConverter.toDTO(savedContent);
     }
 
@@ -81,6 +147,11 @@ public class ContentService {
             existingContent.setText(contentUpdateDTO.getText());
 
             Content updatedContent = contentRepository.save(existingContent);
+            entityCache.evictContent(id);
+            // Replies carry a copy of their parent's title and text
+            entityCache.evictContents(contentRepository.findIdsByParentId(id));
+            eventPublisher.publishEvent(new ContentTextChangedEvent(updatedContent.getId(), updatedContent.getType(),
+                    updatedContent.getTitle(), updatedContent.getText()));
             return ContentUpdateConverter.toDTO(updatedContent);
         } catch (Exception e) {
             System.err.println("Error updating content: " + e.getMessage());
@@ -89,63 +160,206 @@ public class ContentService {
         }
     }
 
+    public ContentDTO findById(Long id, ImageSize imageSize) {
+        return ContentConverter.toDTO(contentView(id), imageSize);
+    }
+
+    public Long findAuthorId(Long id) {
+        return cachedContent(id).getAuthor().getId();
+    }
+
+    private Content cachedContent(Long id) {
+        Content cached = entityCache.content(id, key -> contentRepository.findWithTagsAndParentById(key).map(EntityCache::snapshot).orElse(null));
+        if (cached == null) {
+            throw new RuntimeException("Content not found with id: " + id);
+        }
+        return cached;
+    }
+
+    // Detached copy of the cached content with its cached author filled in
+    private Content contentView(Long id) {
+        Content cached = cachedContent(id);
+        Content view = EntityCache.copyOf(cached);
+        Long authorId = cached.getAuthor().getId();
+        view.setAuthor(entityCache.user(authorId, key -> userRepository.findById(key).map(EntityCache::snapshot).orElse(null)));
+        return view;
+    }
+
+    /**
+     * @return true if the content and its replies are gone, false if deletion continues in the background
+     */
+    public boolean deleteById(Long id) {
+        return contentDeletionService.deleteSubtree(id);
+    }
+
     @Transactional(readOnly = true)
-    public ContentDTO findById(Long id) {
-        Content content = this.contentRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Content not found with id: " + id));
-        fetchTagsForPost(content);
-        return ContentConverter.toDTO(content);
+    public CursorPageDTO<ContentDTO> findPostsPage(int limit, String cursor, ImageSize imageSize) {
+        CursorPageDTO<Long> ids = findPostIdsPage(limit, cursor);
+        return new CursorPageDTO<>(contentDTOAssembler.assemble(ids.getItems(), imageSize), ids.getNextCursor());
     }
 
-    public void deleteById(Long id) {
-        Content content = this.contentRepository.findById(id).orElseThrow();
-        deleteChildren(content);
-        this.contentRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public NormalizedPageDTO findPostsPageNormalized(int limit, String cursor, ImageSize imageSize) {
+        CursorPageDTO<Long> ids = findPostIdsPage(limit, cursor);
+        return contentDTOAssembler.assembleNormalized(ids.getItems(), imageSize, ids.getNextCursor());
     }
 
-    private void deleteChildren(Content content) {
-        List<Content> children = contentRepository.findByParentId(content.getId());
-        for (Content child : children) {
-            deleteChildren(child);
-            contentRepository.deleteById(child.getId());
+    private CursorPageDTO<Long> findPostIdsPage(int limit, String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        // One extra row tells us whether another page exists without a count query
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<FeedCursor> keys;
+        if (cursor == null || cursor.isBlank()) {
+            keys = this.contentRepository.findFeedFirstPage(ContentType.POST, fetchLimit);
+        } else {
+            FeedCursor after = FeedCursor.decode(cursor);
+            keys = this.contentRepository.findFeedPageAfter(ContentType.POST, after.dateTime(), after.id(), fetchLimit);
+        }
+
+        String nextCursor = null;
+        if (keys.size() > pageSize) {
+            keys = keys.subList(0, pageSize);
+            nextCursor = keys.get(pageSize - 1).encode();
         }
+
+        List<Long> ids = keys.stream().map(FeedCursor::id).collect(Collectors.toList());
+        return new CursorPageDTO<>(ids, nextCursor);
     }
 
     @Transactional(readOnly = true)
-    public List<ContentDTO> findAllPosts() {
-        List<Content> posts = this.contentRepository.findByType(ContentType.POST);
-        posts.forEach(this::fetchTagsForPost);
-        return posts.stream()
-            .map(ContentConverter::toDTO)
-            .collect(Collectors.toList());
+    public List<ContentDTO> findHotPosts(int limit, ImageSize imageSize) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        return contentDTOAssembler.assemble(hotPostRanking.top(pageSize), imageSize);
     }
 
+    /**
+     * Posts matching a tag expression, newest first. An unknown tag in {@code all}
+     * matches nothing; unknown tags in {@code any} and {@code none} are ignored.
+     */
     @Transactional(readOnly = true)
-    protected void fetchTagsForPost(Content post) {
-        try {
-            Hibernate.initialize(post.getTags());
-            List<Tag> tags = contentRepository.findTagsForPost(post.getId());
-            Set<Tag> newTags = new HashSet<>(tags);
-            post.setTags(newTags);
-        } catch (Exception e) {
-            System.err.println("Error fetching tags for post " + post.getId() + ": " + e.getMessage());
+    public CursorPageDTO<ContentDTO> searchByTags(List<String> all, List<String> any, List<String> none,
+                                                  int limit, String cursor, ImageSize imageSize) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        Long beforeId = cursor == null || cursor.isBlank() ? null : Long.parseLong(cursor);
+
+        Map<String, Long> allIds = tagDictionary.lookup(all);
+        Map<String, Long> anyIds = tagDictionary.lookup(any);
+        if (allIds.size() < new HashSet<>(all).size() || (!any.isEmpty() && anyIds.isEmpty())) {
+            return new CursorPageDTO<>(new ArrayList<>(), null);
+        }
+        TagBitmapIndex.Page page = tagBitmapIndex.query(allIds.values(), anyIds.values(),
+                tagDictionary.lookup(none).values(), beforeId, pageSize);
+
+        String nextCursor = page.nextCursor() == null ? null : String.valueOf(page.nextCursor());
+        return new CursorPageDTO<>(contentDTOAssembler.assemble(page.ids(), imageSize), nextCursor);
+    }
+
+    /**
+     * Full-text search over post titles and text, best match first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<SearchHitDTO> search(String q, int limit, String cursor, ImageSize imageSize) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        ContentSearchIndex.Page page = contentSearchIndex.search(q, pageSize, cursor);
+
+        List<Long> ids = page.hits().stream().map(ContentSearchIndex.Hit::id).collect(Collectors.toList());
+        Map<Long, ContentDTO> dtos = contentDTOAssembler.assemble(ids, imageSize).stream()
+                .collect(Collectors.toMap(ContentDTO::getId, Function.identity()));
+        // Hits deleted since the index last refreshed have no DTO and are dropped
+        List<SearchHitDTO> hits = new ArrayList<>();
+        for (ContentSearchIndex.Hit hit : page.hits()) {
+            ContentDTO dto = dtos.get(hit.id());
+            if (dto != null) {
+                hits.add(new SearchHitDTO(dto, hit.score(), hit.titleHighlight(), hit.textHighlight()));
+            }
+        }
+        return new CursorPageDTO<>(hits, page.nextCursor());
+    }
+
+    /**
+     * Comment tree under a post (or comment), paged over its direct replies.
+     * Each page is one range scan over the materialized path index covering the
+     * page's replies and their descendants up to {@code depth} levels below the root.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<CommentNodeDTO> findThread(Long rootId, Integer depth, int limit, String cursor, ImageSize imageSize) {
+        List<Object[]> root = this.contentRepository.findPathAndDepthById(rootId);
+        if (root.isEmpty()) {
+            throw new RuntimeException("Content not found with id: " + rootId);
+        }
+        // Rows the path backfill has not reached yet are placed through their parent links
+        ContentPathBackfillRunner.Placement rootPlacement = root.get(0)[0] != null
+                ? new ContentPathBackfillRunner.Placement((String) root.get(0)[0], (Integer) root.get(0)[1])
+                : contentPathBackfill.placement(rootId);
+        String rootPath = rootPlacement.path();
+        int rootDepth = rootPlacement.depth();
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        long afterId = cursor == null || cursor.isBlank() ? 0L : Long.parseLong(cursor);
+        List<Long> replyIds = this.contentRepository.findChildIdsAfter(rootId, afterId, Limit.of(pageSize + 1));
+        String nextCursor = null;
+        if (replyIds.size() > pageSize) {
+            replyIds = replyIds.subList(0, pageSize);
+            nextCursor = String.valueOf(replyIds.get(pageSize - 1));
+        }
+        if (replyIds.isEmpty()) {
+            return new CursorPageDTO<>(new ArrayList<>(), null);
         }
+
+        // The path of the id just past the last reply bounds that reply's whole subtree
+        int maxDepth = depth == null ? Integer.MAX_VALUE : rootDepth + Math.max(1, depth);
+        List<Object[]> rows = root.get(0)[0] != null && contentPathBackfill.isComplete()
+                ? this.contentRepository.findPathRange(
+                        ContentPath.child(rootPath, replyIds.get(0)),
+                        ContentPath.child(rootPath, replyIds.get(replyIds.size() - 1) + 1),
+                        maxDepth)
+                : contentPathBackfill.subtreeRows(rootPlacement, replyIds, maxDepth);
+
+        List<Long> ids = rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        Map<Long, ContentDTO> dtos = contentDTOAssembler.assemble(ids, imageSize).stream()
+                .collect(Collectors.toMap(ContentDTO::getId, Function.identity()));
+
+        // Rows arrive in path order, so every parent is seen before its replies
+        Map<String, CommentNodeDTO> nodesByPath = new HashMap<>();
+        List<CommentNodeDTO> replies = new ArrayList<>();
+        for (Object[] row : rows) {
+            ContentDTO dto = dtos.get((Long) row[0]);
+            if (dto == null) {
+                continue;
+            }
+            String path = (String) row[1];
+            String parentPath = ContentPath.parent(path);
+            CommentNodeDTO node = new CommentNodeDTO(dto);
+            nodesByPath.put(path, node);
+            if (rootPath.equals(parentPath)) {
+                replies.add(node);
+            } else if (nodesByPath.containsKey(parentPath)) {
+                nodesByPath.get(parentPath).getReplies().add(node);
+            }
+        }
+        return new CursorPageDTO<>(replies, nextCursor);
     }
 
-    public List<ContentDTO> findAllCommentsByParentId(Long parentId) {
-        return this.contentRepository.findByParentId(parentId).stream().map(ContentConverter::toDTO).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<ContentDTO> findAllCommentsByParentId(Long parentId, ImageSize imageSize) {
+        return contentDTOAssembler.assemble(this.contentRepository.findIdsByParentId(parentId), imageSize);
     }
 
-    public List<ContentDTO> findPostsByAuthorId(Long authorId) {
-        List<Content> posts = this.contentRepository.findByAuthorIdAndType(authorId, ContentType.POST);
-        posts.forEach(this::fetchTagsForPost);
-        return posts.stream()
-            .map(ContentConverter::toDTO)
-            .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public NormalizedPageDTO findAllCommentsByParentIdNormalized(Long parentId, ImageSize imageSize) {
+        return contentDTOAssembler.assembleNormalized(this.contentRepository.findIdsByParentId(parentId), imageSize, null);
     }
 
+    @Transactional(readOnly = true)
+    public List<ContentDTO> findPostsByAuthorId(Long authorId, ImageSize imageSize) {
+        List<Long> ids = this.contentRepository.findIdsByAuthorIdAndType(authorId, ContentType.POST);
+        return contentDTOAssembler.assemble(ids, imageSize);
+    }
+
+    @Transactional(readOnly = true)
     public List<ContentDTO> findCommentsByAuthorId(Long authorId) {
-        return this.contentRepository.findByAuthorIdAndType(authorId, ContentType.COMMENT).stream().map(ContentConverter::toDTO).collect(Collectors.toList());
+        List<Long> ids = this.contentRepository.findIdsByAuthorIdAndType(authorId, ContentType.COMMENT);
+        return contentDTOAssembler.assemble(ids, ImageSize.FULL);
     }
 
     @Transactional
@@ -157,132 +371,76 @@ public class ContentService {
             throw new RuntimeException("Can only update status of posts");
         }
 
-        List<Content> comments = contentRepository.findByParentId(id);
-        
-        if (newStatus == PostStatus.FIRST_REACTIONS && comments.isEmpty()) {
+        if (newStatus == PostStatus.FIRST_REACTIONS && !contentRepository.existsByParentId(id)) {
             throw new RuntimeException("Cannot set status to FIRST_REACTIONS for a post with no comments");
         }
         
         content.setStatus(newStatus);
         Content updatedContent = contentRepository.save(content);
+        entityCache.evictContent(id);
         return ContentConverter.toDTO(updatedContent);
     }
 
     @Transactional
     public ContentDTO addVote(Long contentId, Long userId, VoteType voteType) {
-        Content content = contentRepository.findById(contentId)
-                .orElseThrow(() -> new RuntimeException("Content not found with id: " + contentId));
-        
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+        Content content = contentView(contentId);
+        if (entityCache.user(userId, key -> userRepository.findById(key).map(EntityCache::snapshot).orElse(null)) == null) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
 
         if (content.getAuthor().getId().equals(userId)) {
             throw new RuntimeException("Users cannot vote on their own content");
         }
 
-        Vote existingVote = content.getVotes().stream()
-                .filter(vote -> vote.getUser().getId().equals(userId))
-                .findFirst()
-                .orElse(null);
-
-        User author = content.getAuthor();
-        double authorCurrentScore = author.getScore() != null ? author.getScore() : 0.0;
-        double voterCurrentScore = user.getScore() != null ? user.getScore() : 0.0;
-
-        if (existingVote != null) {
-            if (existingVote.getType() == voteType) {
-                content.getVotes().remove(existingVote);
-                existingVote.setContent(null);
-                existingVote.setUser(null);
-                
-                ScoreDTO scoreDTO = new ScoreDTO();
-                scoreDTO.setVoterId(userId);
-                scoreDTO.setContentId(contentId);
-                scoreDTO.setContentType(content.getType().toString());
-                scoreDTO.setVoteType(existingVote.getType().toString());
-                scoreDTO.setAuthorId(author.getId());
-                double baseScore = scoreCalculationService.calculateScore(scoreDTO);
-                
-                author.setScore(authorCurrentScore - baseScore);
-                
-                if (content.getType() == ContentType.COMMENT && existingVote.getType() == VoteType.DOWN_VOTE) {
-                    user.setScore(voterCurrentScore - (baseScore + 1));
-                }
-            } else {
-                VoteType oldType = existingVote.getType();
-                existingVote.setType(voteType);
-                
-                ScoreDTO oldScoreDTO = new ScoreDTO();
-                oldScoreDTO.setVoterId(userId);
-                oldScoreDTO.setContentId(contentId);
-                oldScoreDTO.setContentType(content.getType().toString());
-                oldScoreDTO.setVoteType(oldType.toString());
-                oldScoreDTO.setAuthorId(author.getId());
-                double oldBaseScore = scoreCalculationService.calculateScore(oldScoreDTO);
-                
-                ScoreDTO newScoreDTO = new ScoreDTO();
-                newScoreDTO.setVoterId(userId);
-                newScoreDTO.setContentId(contentId);
-                newScoreDTO.setContentType(content.getType().toString());
-                newScoreDTO.setVoteType(voteType.toString());
-                newScoreDTO.setAuthorId(author.getId());
-                double newBaseScore = scoreCalculationService.calculateScore(newScoreDTO);
-                
-                author.setScore(authorCurrentScore - oldBaseScore + newBaseScore);
-                
-                if (content.getType() == ContentType.COMMENT) {
-                    if (oldType == VoteType.DOWN_VOTE) {
-                        user.setScore(voterCurrentScore - (oldBaseScore + 1));
-                    }
-                    if (voteType == VoteType.DOWN_VOTE) {
-                        user.setScore(user.getScore() + (newBaseScore + 1));
-                    }
-                }
-            }
-        } else {
+        Vote existingVote = voteRepository.findByUserIdAndContentId(userId, contentId).orElse(null);
+        VoteType oldType = existingVote != null ? existingVote.getType() : null;
+        // Repeating the current vote withdraws it
+        VoteType newType = oldType == voteType ? null : voteType;
+
+        Long voteId;
+        if (existingVote == null) {
             Vote vote = new Vote();
-            vote.setUser(user);
-            vote.setContent(content);
-            vote.setType(voteType);
+            vote.setUser(userRepository.getReferenceById(userId));
+            vote.setContent(contentRepository.getReferenceById(contentId));
+            vote.setType(newType);
             vote.setDateTime(LocalDateTime.now());
-            content.getVotes().add(vote);
-            
-            ScoreDTO scoreDTO = new ScoreDTO();
-            scoreDTO.setVoterId(userId);
-            scoreDTO.setContentId(contentId);
-            scoreDTO.setContentType(content.getType().toString());
-            scoreDTO.setVoteType(voteType.toString());
-            scoreDTO.setAuthorId(author.getId());
-            double baseScore = scoreCalculationService.calculateScore(scoreDTO);
-            
-            author.setScore(authorCurrentScore + baseScore);
-            
-            if (content.getType() == ContentType.COMMENT && voteType == VoteType.DOWN_VOTE) {
-                user.setScore(voterCurrentScore + (baseScore + 1));
-            }
+            voteId = voteRepository.save(vote).getId();
+        } else if (newType == null) {
+            voteId = existingVote.getId();
+            voteRepository.delete(existingVote);
+        } else {
+            voteId = existingVote.getId();
+            existingVote.setType(newType);
         }
+        applyVoteCountDelta(content, oldType, newType);
 
-        try {
-            author = userRepository.save(author);
-            user = userRepository.save(user);
-            
-            Content updatedContent = contentRepository.save(content);
-            updatedContent.setAuthor(author);
-            
-            return ContentConverter.toDTO(updatedContent);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to save vote: " + e.getMessage(), e);
-        }
+        ScoreCalculationService.VoteScoreDelta delta = scoreCalculationService.voteDelta(content.getType(), oldType, newType);
+        scoreLedgerService.record(content.getAuthor().getId(), delta.authorDelta(), voteId);
+        scoreLedgerService.record(userId, delta.voterDelta(), voteId);
+
+        return ContentConverter.toDTO(content);
+    }
+
+    // Counters are maintained with atomic SQL increments; the entity copy is only
+    // adjusted so the returned DTO reflects this vote
+    private void applyVoteCountDelta(Content content, VoteType removed, VoteType added) {
+        contentRepository.applyVoteTransition(content.getId(), removed, added);
+        eventPublisher.publishEvent(new ContentVotedEvent(List.of(content.getId())));
+        content.setUpvoteCount(content.getUpvoteCount()
+                + (added == VoteType.UPVOTE ? 1 : 0) - (removed == VoteType.UPVOTE ? 1 : 0));
+        content.setDownvoteCount(content.getDownvoteCount()
+                + (added == VoteType.DOWN_VOTE ? 1 : 0) - (removed == VoteType.DOWN_VOTE ? 1 : 0));
     }
 
     @Transactional
     public ContentDTO removeVote(Long contentId, Long userId) {
-        Content content = contentRepository.findById(contentId)
-                .orElseThrow(() -> new RuntimeException("Content not found with id: " + contentId));
+        Content content = contentView(contentId);
 
-        content.getVotes().removeIf(vote -> vote.getUser().getId().equals(userId));
-        
-        Content updatedContent = contentRepository.save(content);
-        return ContentConverter.toDTO(updatedContent);
+        voteRepository.findByUserIdAndContentId(userId, contentId).ifPresent(vote -> {
+            voteRepository.delete(vote);
+            applyVoteCountDelta(content, vote.getType(), null);
+        });
+
+        return ContentConverter.toDTO(content);
     }
 }
@@ -0,0 +1,84 @@
+package instagram_clone.service;
+
+import instagram_clone.cache.EntityCache;
+import instagram_clone.event.FollowChangedEvent;
+import instagram_clone.repository.FollowRepository;
+import instagram_clone.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class FollowService {
+    private final FollowRepository followRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityCache entityCache;
+
+    public FollowService(FollowRepository followRepository,
+                         UserRepository userRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         EntityCache entityCache) {
+        this.followRepository = followRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.entityCache = entityCache;
+    }
+
+    @Transactional
+    public void follow(Long followerId, Long followeeId) {
+        if (followerId.equals(followeeId)) {
+            throw new RuntimeException("Users cannot follow themselves");
+        }
+        if (!userRepository.existsById(followerId)) {
+            throw new RuntimeException("User not found with id: " + followerId);
+        }
+        if (!userRepository.existsById(followeeId)) {
+            throw new RuntimeException("User not found with id: " + followeeId);
+        }
+        // Only the request that actually inserts the row counts it
+        if (followRepository.insertIfAbsent(followerId, followeeId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        userRepository.incrementFollowerCount(followeeId, 1);
+        publish(followerId, followeeId, true);
+    }
+
+    @Transactional
+    public void unfollow(Long followerId, Long followeeId) {
+        if (followRepository.deleteByFollowerIdAndFolloweeId(followerId, followeeId) > 0) {
+            userRepository.incrementFollowerCount(followeeId, -1);
+            publish(followerId, followeeId, false);
+        }
+    }
+
+    /**
+     * Removes everything the user follows before the user is deleted. ON DELETE CASCADE
+     * would drop the rows as well, but without lowering the followees' counts.
+     */
+    @Transactional
+    public void unfollowAll(Long followerId) {
+        for (Long followeeId : followRepository.findFolloweeIds(followerId)) {
+            unfollow(followerId, followeeId);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findFolloweeIds(Long followerId) {
+        return followRepository.findFolloweeIds(followerId);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findFollowerIds(Long followeeId) {
+        return followRepository.findFollowerIds(followeeId);
+    }
+
+    private void publish(Long followerId, Long followeeId, boolean following) {
+        entityCache.evictUser(followeeId);
+        long followerCount = userRepository.findFollowerCountById(followeeId).orElse(0L);
+        eventPublisher.publishEvent(new FollowChangedEvent(followerId, followeeId, following, followerCount));
+    }
+}
@@ -0,0 +1,182 @@
+package instagram_clone.service;
+
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.ContentVotedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The K hottest posts, where a post's heat is its net votes decayed
+ * exponentially with age: {@code net * 2^(-age / halfLife)}. Every post decays
+ * at the same rate, so the order is fixed by {@code ln(net) + lambda * createdAt}
+ * and only changes when votes do. Vote events update the ranking in place; a
+ * periodic rebuild from the database repairs anything the increments missed.
+ */
+@Component
+public class HotPostRanking {
+    private static final Logger logger = LoggerFactory.getLogger(HotPostRanking.class);
+
+    private static final Comparator<Entry> HOTTEST_FIRST =
+            Comparator.comparingDouble(Entry::key).reversed().thenComparing(Comparator.comparingLong(Entry::id).reversed());
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int capacity;
+    private final double lambda;
+    private final long windowHours;
+    private final ReentrantLock lock = new ReentrantLock();
+    private TreeSet<Entry> ranked = new TreeSet<>(HOTTEST_FIRST);
+    private Map<Long, Entry> entries = new HashMap<>();
+    // Rebuilt on the first read after a change so reads never walk the tree
+    private volatile long[] snapshot = new long[0];
+    private volatile boolean dirty;
+
+    private record Entry(double key, long id) {
+    }
+
+    public HotPostRanking(NamedParameterJdbcTemplate jdbcTemplate,
+                          @Value("${hot.capacity:500}") int capacity,
+                          @Value("${hot.half-life-hours:12}") double halfLifeHours,
+                          @Value("${hot.rebuild-window-hours:168}") long windowHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = capacity;
+        this.lambda = Math.log(2) / (halfLifeHours * 3600);
+        this.windowHours = windowHours;
+    }
+
+    /**
+     * Ids of the hottest posts, hottest first.
+     */
+    public List<Long> top(int limit) {
+        long[] ids = snapshot;
+        if (dirty) {
+            lock.lock();
+            try {
+                if (dirty) {
+                    ids = ranked.stream().mapToLong(Entry::id).toArray();
+                    snapshot = ids;
+                    dirty = false;
+                } else {
+                    ids = snapshot;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return Arrays.stream(ids, 0, Math.min(Math.max(limit, 0), ids.length)).boxed().toList();
+    }
+
+    @TransactionalEventListener
+    public void onContentVoted(ContentVotedEvent event) {
+        jdbcTemplate.query("SELECT id, upvote_count, downvote_count, date_time FROM contents" +
+                        " WHERE id IN (:ids) AND type = 'POST'",
+                new MapSqlParameterSource("ids", event.contentIds()),
+                rs -> {
+                    update(rs.getLong("id"), rs.getLong("upvote_count") - rs.getLong("downvote_count"),
+                            rs.getTimestamp("date_time").toLocalDateTime());
+                });
+    }
+
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        lock.lock();
+        try {
+            for (Long id : event.contentIds()) {
+                Entry entry = entries.remove(id);
+                if (entry != null) {
+                    ranked.remove(entry);
+                    dirty = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-ranks one post from its current net votes. A post that drops while in
+     * the top K stays there with its lower key until a post outside overtakes it
+     * or the next rebuild.
+     */
+    public void update(long id, long netVotes, LocalDateTime createdAt) {
+        double key = key(netVotes, createdAt);
+        lock.lock();
+        try {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                ranked.remove(previous);
+                dirty = true;
+            }
+            if (Double.isInfinite(key) || (ranked.size() >= capacity && key <= ranked.last().key())) {
+                return;
+            }
+            Entry entry = new Entry(key, id);
+            ranked.add(entry);
+            entries.put(id, entry);
+            if (ranked.size() > capacity) {
+                entries.remove(ranked.pollLast().id());
+            }
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${hot.rebuild-interval-ms:300000}", fixedDelayString = "${hot.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        // Streamed through a bounded min-heap, so memory stays at K entries whatever the window holds
+        PriorityQueue<Entry> heap = new PriorityQueue<>(capacity + 1, HOTTEST_FIRST.reversed());
+        jdbcTemplate.query("SELECT id, upvote_count - downvote_count AS net, date_time FROM contents" +
+                        " WHERE type = 'POST' AND upvote_count > downvote_count AND date_time >= :since",
+                new MapSqlParameterSource("since", Timestamp.valueOf(LocalDateTime.now().minusHours(windowHours))),
+                rs -> {
+                    heap.add(new Entry(key(rs.getLong("net"), rs.getTimestamp("date_time").toLocalDateTime()), rs.getLong("id")));
+                    if (heap.size() > capacity) {
+                        heap.poll();
+                    }
+                });
+
+        TreeSet<Entry> rebuilt = new TreeSet<>(HOTTEST_FIRST);
+        Map<Long, Entry> rebuiltEntries = new HashMap<>();
+        for (Entry entry : heap) {
+            rebuilt.add(entry);
+            rebuiltEntries.put(entry.id(), entry);
+        }
+        lock.lock();
+        try {
+            ranked = rebuilt;
+            entries = rebuiltEntries;
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+        logger.debug("Rebuilt hot ranking with {} posts", rebuilt.size());
+    }
+
+    private double key(long netVotes, LocalDateTime createdAt) {
+        if (netVotes <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        return Math.log(netVotes) + lambda * createdAt.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,120 @@
+package instagram_clone.service;
+
+import instagram_clone.cache.EntityCache;
+import instagram_clone.model.PostStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves posts to {@code OUTDATED} once they are older than the maximum age, or
+ * older than the inactivity window with no comment or vote inside it. Each
+ * chunk picks ids by keyset and updates them by primary key in its own short
+ * autocommit statement, so only the chunk's rows are locked and only briefly.
+ */
+@Service
+public class PostStatusSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(PostStatusSweeper.class);
+
+    private static final List<PostStatus> SWEPT_STATUSES = List.of(PostStatus.JUST_POSTED, PostStatus.FIRST_REACTIONS);
+
+    private static final String SELECT_STALE_SQL =
+            "SELECT c.id FROM contents c WHERE c.type = 'POST' AND c.status = :status AND c.id > :afterId" +
+            " AND (c.date_time < :ageCutoff OR (c.date_time < :idleCutoff" +
+            " AND NOT EXISTS (SELECT 1 FROM contents r WHERE r.parent_id = c.id AND r.date_time >= :idleCutoff)" +
+            " AND NOT EXISTS (SELECT 1 FROM votes v WHERE v.content_id = c.id AND v.date_time >= :idleCutoff)))" +
+            " ORDER BY c.id LIMIT :limit";
+    // Status is re-checked so a concurrent manual transition is not overwritten
+    private static final String OUTDATE_SQL =
+            "UPDATE contents SET status = 'OUTDATED' WHERE id IN (:ids) AND status = :status AND date_time < :idleCutoff";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityCache entityCache;
+    private final boolean enabled;
+    private final long maxAgeHours;
+    private final long inactiveHours;
+    private final int chunkSize;
+    private final DistributionSummary transitionedPerRun;
+    private final Timer runTimer;
+
+    public PostStatusSweeper(NamedParameterJdbcTemplate jdbcTemplate,
+                             EntityCache entityCache,
+                             MeterRegistry meterRegistry,
+                             @Value("${posts.status-sweep.enabled:true}") boolean enabled,
+                             @Value("${posts.status-sweep.max-age-hours:72}") long maxAgeHours,
+                             @Value("${posts.status-sweep.inactive-hours:24}") long inactiveHours,
+                             @Value("${posts.status-sweep.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityCache = entityCache;
+        this.enabled = enabled;
+        this.maxAgeHours = maxAgeHours;
+        this.inactiveHours = inactiveHours;
+        this.chunkSize = chunkSize;
+        this.transitionedPerRun = DistributionSummary.builder("posts.status.sweep.transitioned")
+                .description("Posts moved to OUTDATED per sweep run")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("posts.status.sweep")
+                .description("Duration of one post status sweep run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${posts.status-sweep.interval-ms:60000}")
+    public void scheduledSweep() {
+        if (enabled) {
+            sweep();
+        }
+    }
+
+    /**
+     * @return number of posts moved to OUTDATED
+     */
+    public long sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp ageCutoff = Timestamp.valueOf(now.minusHours(maxAgeHours));
+        // The age rule covers everything an idle window longer than the max age would
+        Timestamp idleCutoff = Timestamp.valueOf(now.minusHours(Math.min(inactiveHours, maxAgeHours)));
+
+        Timer.Sample sample = Timer.start();
+        long total = 0;
+        for (PostStatus status : SWEPT_STATUSES) {
+            total += sweep(status, ageCutoff, idleCutoff);
+        }
+        sample.stop(runTimer);
+        transitionedPerRun.record(total);
+        if (total > 0) {
+            logger.info("Marked {} posts as OUTDATED", total);
+        }
+        return total;
+    }
+
+    private long sweep(PostStatus status, Timestamp ageCutoff, Timestamp idleCutoff) {
+        long transitioned = 0;
+        long afterId = 0;
+        while (true) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("status", status.name())
+                    .addValue("afterId", afterId)
+                    .addValue("ageCutoff", ageCutoff)
+                    .addValue("idleCutoff", idleCutoff)
+                    .addValue("limit", chunkSize);
+            List<Long> ids = jdbcTemplate.queryForList(SELECT_STALE_SQL, params, Long.class);
+            if (ids.isEmpty()) {
+                return transitioned;
+            }
+            transitioned += jdbcTemplate.update(OUTDATE_SQL, params.addValue("ids", ids));
+            entityCache.evictContents(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+}
@@ -1,50 +1,187 @@
 package instagram_clone.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import instagram_clone.dto.ScoreDTO;
 import instagram_clone.dto.ScoreRequestDTO;
 import instagram_clone.dto.ScoreResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import instagram_clone.model.ContentType;
 import instagram_clone.model.VoteType;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base points for a vote, looked up by {@code (ContentType, VoteType)} in a
+ * precomputed table. In remote mode the table comes from the score service:
+ * since the rule depends only on those two enums, every pending lookup
+ * collapses into one batched {@code /calculate} call for the whole table,
+ * cached for {@code score.service.cache-ttl-ms}. Until the first response
+ * arrives, or while the service is unreachable, the last known table is used
+ * (the local one initially).
+ */
 @Service
 public class ScoreCalculationService {
     private static final Logger logger = LoggerFactory.getLogger(ScoreCalculationService.class);
 
-    @Value("${score.service.url}")
-    private String scoreServiceUrl;
+    private static final ContentType[] CONTENT_TYPES = ContentType.values();
+    private static final VoteType[] VOTE_TYPES = VoteType.values();
+    // Indexed by [ContentType.ordinal()][VoteType.ordinal()]
+    private static final double[][] LOCAL_SCORES = localScores();
 
-    private final RestTemplate restTemplate;
+    private final boolean remote;
+    private final URI calculateUri;
+    private final Duration timeout;
+    private final long cacheTtlNanos;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Counter fallbacks;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile double[][] scores = LOCAL_SCORES;
+    private volatile long refreshAfter;
 
-    public ScoreCalculationService() {
-        this.restTemplate = new RestTemplate();
+    public ScoreCalculationService(ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${score.service.url}") String scoreServiceUrl,
+                                   @Value("${score.service.mode:local}") String mode,
+                                   @Value("${score.service.timeout-ms:500}") long timeoutMs,
+                                   @Value("${score.service.cache-ttl-ms:60000}") long cacheTtlMs) {
+        this.objectMapper = objectMapper;
+        this.remote = "remote".equalsIgnoreCase(mode);
+        this.calculateUri = URI.create(scoreServiceUrl + "/calculate");
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMs);
+        // One client for the lifetime of the service so connections are kept alive and reused
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.fallbacks = Counter.builder("score.service.fallbacks")
+                .description("Remote score table refreshes that failed and kept the previous table")
+                .register(meterRegistry);
+        this.refreshAfter = System.nanoTime();
     }
 
-    public double calculateScore(ScoreDTO vote) {
-        System.err.println("Calculating score for vote: " + vote);
+    @PostConstruct
+    void warmUp() {
+        if (remote) {
+            refresh();
+        }
+    }
 
-        double baseScore = 0.0;
+    public double baseScore(ContentType contentType, VoteType voteType) {
+        if (remote && System.nanoTime() - refreshAfter >= 0) {
+            refresh();
+        }
+        return scores[contentType.ordinal()][voteType.ordinal()];
+    }
 
-        if (vote.getContentType().equals(ContentType.POST.toString())) {
-            if (vote.getVoteType().equals(VoteType.UPVOTE.toString())) {
-                baseScore = 1.0;
-            } else if (vote.getVoteType().equals(VoteType.DOWN_VOTE.toString())) {
-                baseScore = -1.0;
+    public record VoteScoreDelta(double authorDelta, double voterDelta) {
+    }
+
+    // Score change caused by a vote moving from oldType to newType (null meaning no vote)
+    public VoteScoreDelta voteDelta(ContentType contentType, VoteType oldType, VoteType newType) {
+        double oldScore = oldType != null ? baseScore(contentType, oldType) : 0.0;
+        double newScore = newType != null ? baseScore(contentType, newType) : 0.0;
+
+        double voterDelta = 0.0;
+        // Down-voting a comment also costs the voter
+        if (contentType == ContentType.COMMENT) {
+            if (oldType == VoteType.DOWN_VOTE) {
+                voterDelta -= oldScore + 1;
+            }
+            if (newType == VoteType.DOWN_VOTE) {
+                voterDelta += newScore + 1;
             }
-        } else if (vote.getContentType().equals(ContentType.COMMENT.toString())) {
-            if (vote.getVoteType().equals(VoteType.UPVOTE.toString())) {
-                baseScore = 2.0;
-            } else if (vote.getVoteType().equals(VoteType.DOWN_VOTE.toString())) {
-                baseScore = -2.0;
+        }
+        return new VoteScoreDelta(newScore - oldScore, voterDelta);
+    }
+
+    // Single flight: callers never wait on the network, they read the current table
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(calculateUri)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(tableRequest())))
+                    .build();
+        } catch (Exception e) {
+            refreshing.set(false);
+            throw new RuntimeException("Failed to build score request: " + e.getMessage(), e);
+        }
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    try {
+                        if (error != null) {
+                            throw error;
+                        }
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("score service returned " + response.statusCode());
+                        }
+                        scores = toTable(objectMapper.readValue(response.body(), ScoreResponseDTO.class));
+                        refreshAfter = System.nanoTime() + cacheTtlNanos;
+                    } catch (Throwable e) {
+                        fallbacks.increment();
+                        // Retry sooner than a full TTL, but not on every vote
+                        refreshAfter = System.nanoTime() + Math.min(cacheTtlNanos, TimeUnit.SECONDS.toNanos(5));
+                        logger.warn("Score service unavailable, keeping current score table: {}", e.getMessage());
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+    }
+
+    private static ScoreRequestDTO tableRequest() {
+        List<ScoreDTO> votes = new ArrayList<>();
+        for (ContentType contentType : CONTENT_TYPES) {
+            for (VoteType voteType : VOTE_TYPES) {
+                ScoreDTO vote = new ScoreDTO();
+                vote.setContentType(contentType.name());
+                vote.setVoteType(voteType.name());
+                votes.add(vote);
             }
         }
+        ScoreRequestDTO request = new ScoreRequestDTO();
+        request.setVotes(votes);
+        return request;
+    }
+
+    private static double[][] toTable(ScoreResponseDTO response) {
+        List<Double> values = response.getScores();
+        if (values == null || values.size() != CONTENT_TYPES.length * VOTE_TYPES.length) {
+            throw new IllegalStateException("unexpected score table size");
+        }
+        double[][] table = new double[CONTENT_TYPES.length][VOTE_TYPES.length];
+        for (int i = 0; i < values.size(); i++) {
+            table[i / VOTE_TYPES.length][i % VOTE_TYPES.length] = values.get(i);
+        }
+        return table;
+    }
 
-        System.err.println("Calculated score: " + baseScore);
-        return baseScore;
+    private static double[][] localScores() {
+        double[][] table = new double[CONTENT_TYPES.length][VOTE_TYPES.length];
+        table[ContentType.POST.ordinal()][VoteType.UPVOTE.ordinal()] = 1.0;
+        table[ContentType.POST.ordinal()][VoteType.DOWN_VOTE.ordinal()] = -1.0;
+        table[ContentType.COMMENT.ordinal()][VoteType.UPVOTE.ordinal()] = 2.0;
+        table[ContentType.COMMENT.ordinal()][VoteType.DOWN_VOTE.ordinal()] = -2.0;
+        return table;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package instagram_clone.service;
+
+import instagram_clone.model.ScoreLedgerState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Folds score events into {@code users.score} and flags them as compacted in
+ * the same transaction. Events are picked by their flag rather than by an id
+ * watermark, so a vote transaction that took an id but commits after later
+ * ones is still compacted on a following run.
+ */
+@Service
+public class ScoreLedgerCompactor {
+    private static final Logger logger = LoggerFactory.getLogger(ScoreLedgerCompactor.class);
+
+    private static final String APPLY_SQL =
+            "UPDATE users SET score = COALESCE(score, 0) + (SELECT SUM(e.delta) FROM score_events e" +
+            " WHERE e.user_id = users.id AND e.id IN (:ids))" +
+            " WHERE id IN (SELECT DISTINCT user_id FROM score_events WHERE id IN (:ids))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Counter compactedEvents;
+
+    public ScoreLedgerCompactor(JdbcTemplate jdbcTemplate,
+                                NamedParameterJdbcTemplate namedJdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${score.ledger.compaction.enabled:true}") boolean enabled,
+                                @Value("${score.ledger.compaction.batch-size:10000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.compactedEvents = Counter.builder("score.ledger.compacted")
+                .description("Score events folded into materialized user totals")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${score.ledger.compaction.interval-ms:10000}")
+    public void scheduledCompact() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * @return number of events compacted
+     */
+    public long compact() {
+        ensureStateRow();
+        long total = 0;
+        long compacted;
+        do {
+            Long result = transactionTemplate.execute(status -> compactBatch());
+            compacted = result != null ? result : 0;
+            total += compacted;
+        } while (compacted > 0);
+
+        if (total > 0) {
+            compactedEvents.increment(total);
+            logger.debug("Compacted {} score events", total);
+        }
+        return total;
+    }
+
+    private long compactBatch() {
+        lockState();
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM score_events WHERE compacted = FALSE ORDER BY id LIMIT ?", Long.class, batchSize);
+        if (ids.isEmpty()) {
+            return 0L;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        namedJdbcTemplate.update(APPLY_SQL, params);
+        namedJdbcTemplate.update("UPDATE score_events SET compacted = TRUE WHERE id IN (:ids)", params);
+        return ids.size();
+    }
+
+    // Row lock keeps compactors on other instances from applying the same events twice
+    private void lockState() {
+        jdbcTemplate.queryForObject("SELECT id FROM score_ledger_state WHERE id = ? FOR UPDATE",
+                Integer.class, ScoreLedgerState.SINGLETON_ID);
+    }
+
+    private void ensureStateRow() {
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM score_ledger_state WHERE id = ?", Integer.class, ScoreLedgerState.SINGLETON_ID);
+        if (rows != null && rows == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO score_ledger_state (id) VALUES (?)",
+                        ScoreLedgerState.SINGLETON_ID);
+            } catch (DuplicateKeyException e) {
+                // Another instance created it first
+            }
+        }
+    }
+}
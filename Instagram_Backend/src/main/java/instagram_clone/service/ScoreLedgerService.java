@@ -0,0 +1,85 @@
+package instagram_clone.service;
+
+import instagram_clone.dto.UserDTO;
+import instagram_clone.model.ScoreEvent;
+import instagram_clone.repository.ScoreEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only record of score changes. Writers never touch {@code users.score};
+ * readers see the materialized total plus the events not yet compacted.
+ */
+@Service
+public class ScoreLedgerService {
+    private final ScoreEventRepository scoreEventRepository;
+
+    public ScoreLedgerService(ScoreEventRepository scoreEventRepository) {
+        this.scoreEventRepository = scoreEventRepository;
+    }
+
+    @Transactional
+    public void record(Long userId, double delta, Long voteId) {
+        if (delta == 0.0) {
+            return;
+        }
+        ScoreEvent event = new ScoreEvent();
+        event.setUserId(userId);
+        event.setDelta(delta);
+        event.setVoteId(voteId);
+        event.setCreatedAt(LocalDateTime.now());
+        scoreEventRepository.save(event);
+    }
+
+    // One event per user, for changes that have no single causing vote
+    @Transactional
+    public void recordAll(Map<Long, Double> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ScoreEvent> events = new ArrayList<>();
+        deltas.forEach((userId, delta) -> {
+            if (delta != 0.0) {
+                ScoreEvent event = new ScoreEvent();
+                event.setUserId(userId);
+                event.setDelta(delta);
+                event.setCreatedAt(now);
+                events.add(event);
+            }
+        });
+        scoreEventRepository.saveAll(events);
+    }
+
+    @Transactional(readOnly = true)
+    public double currentScore(Long userId) {
+        return currentScores(List.of(userId)).getOrDefault(userId, 0.0);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, Double> currentScores(Collection<Long> userIds) {
+        Map<Long, Double> scores = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return scores;
+        }
+        for (Object[] row : scoreEventRepository.findCurrentScores(userIds)) {
+            scores.put((Long) row[0], ((Number) row[1]).doubleValue());
+        }
+        return scores;
+    }
+
+    public UserDTO withCurrentScore(UserDTO user) {
+        user.setScore(currentScore(user.getId()));
+        return user;
+    }
+
+    public List<UserDTO> withCurrentScores(List<UserDTO> users) {
+        Map<Long, Double> scores = currentScores(users.stream().map(UserDTO::getId).toList());
+        users.forEach(user -> user.setScore(scores.getOrDefault(user.getId(), user.getScore())));
+        return users;
+    }
+}
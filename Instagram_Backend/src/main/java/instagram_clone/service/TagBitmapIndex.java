@@ -0,0 +1,194 @@
+package instagram_clone.service;
+
+import instagram_clone.event.ContentCreatedEvent;
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.model.ContentType;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index from tag id to a compressed bitmap of post ids,
+ * loaded at startup and kept current from content create/delete events.
+ * Post ids are stored as unsigned 32-bit values; ids grow with creation time,
+ * so walking a result bitmap downwards yields posts newest-first.
+ */
+@Component
+public class TagBitmapIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TagBitmapIndex.class);
+    private static final long MAX_POST_ID = 0xFFFFFFFFL;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, RoaringBitmap> postsByTag = new HashMap<>();
+    private final RoaringBitmap allPosts = new RoaringBitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public record Page(List<Long> ids, Long nextCursor) {
+    }
+
+    public TagBitmapIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            postsByTag.clear();
+            allPosts.clear();
+            jdbcTemplate.query("SELECT id FROM contents WHERE type = 'POST'",
+                    rs -> {
+                        addPost(rs.getLong(1));
+                    });
+            jdbcTemplate.query("SELECT ct.tag_id, ct.content_id FROM content_tags ct" +
+                            " JOIN contents c ON c.id = ct.content_id WHERE c.type = 'POST'",
+                    rs -> {
+                        addTag(rs.getLong(1), rs.getLong(2));
+                    });
+            allPosts.runOptimize();
+            postsByTag.values().forEach(RoaringBitmap::runOptimize);
+            logger.info("Indexed {} posts under {} tags", allPosts.getLongCardinality(), postsByTag.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onContentCreated(ContentCreatedEvent event) {
+        if (event.type() != ContentType.POST) {
+            return;
+        }
+        add(event.contentId(), event.tagIds());
+    }
+
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        remove(event.contentIds());
+    }
+
+    public void add(Long postId, Collection<Long> tagIds) {
+        lock.writeLock().lock();
+        try {
+            if (!addPost(postId)) {
+                return;
+            }
+            if (tagIds != null) {
+                for (Long tagId : tagIds) {
+                    addTag(tagId, postId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> contentIds) {
+        RoaringBitmap removed = new RoaringBitmap();
+        for (Long id : contentIds) {
+            if (id != null && id > 0 && id <= MAX_POST_ID) {
+                removed.add((int) id.longValue());
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (!RoaringBitmap.intersects(allPosts, removed)) {
+                return;
+            }
+            allPosts.andNot(removed);
+            postsByTag.values().removeIf(posts -> {
+                posts.andNot(removed);
+                return posts.isEmpty();
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Posts carrying every tag in {@code all}, at least one tag in {@code any} (when given)
+     * and none of the tags in {@code none}, newest first, starting below {@code beforeId}.
+     */
+    public Page query(Collection<Long> all, Collection<Long> any, Collection<Long> none, Long beforeId, int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = match(all, any, none);
+            long from = beforeId == null ? MAX_POST_ID : Math.min(beforeId - 1, MAX_POST_ID);
+            while (from >= 0 && ids.size() <= limit) {
+                long id = matches.previousValue((int) from);
+                if (id < 0) {
+                    break;
+                }
+                ids.add(id);
+                from = id - 1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // One extra id tells us whether another page exists
+        if (ids.size() > limit) {
+            ids = ids.subList(0, limit);
+            return new Page(ids, ids.get(limit - 1));
+        }
+        return new Page(ids, null);
+    }
+
+    // Returned bitmaps may be live index entries and must not be modified by the caller
+    private RoaringBitmap match(Collection<Long> all, Collection<Long> any, Collection<Long> none) {
+        RoaringBitmap matches = null;
+        for (Long tagId : all) {
+            RoaringBitmap posts = postsByTag.get(tagId);
+            if (posts == null) {
+                return new RoaringBitmap();
+            }
+            matches = matches == null ? posts : RoaringBitmap.and(matches, posts);
+        }
+        if (!any.isEmpty()) {
+            RoaringBitmap union = RoaringBitmap.or(any.stream()
+                    .map(postsByTag::get)
+                    .filter(posts -> posts != null)
+                    .iterator());
+            matches = matches == null ? union : RoaringBitmap.and(matches, union);
+        }
+        if (matches == null) {
+            matches = allPosts;
+        }
+        for (Long tagId : none) {
+            RoaringBitmap posts = postsByTag.get(tagId);
+            if (posts != null) {
+                matches = RoaringBitmap.andNot(matches, posts);
+            }
+        }
+        return matches;
+    }
+
+    private boolean addPost(long postId) {
+        if (postId <= 0 || postId > MAX_POST_ID) {
+            logger.warn("Post id {} is outside the tag index range and will not be searchable by tag", postId);
+            return false;
+        }
+        allPosts.add((int) postId);
+        return true;
+    }
+
+    private void addTag(long tagId, long postId) {
+        if (postId <= 0 || postId > MAX_POST_ID) {
+            return;
+        }
+        postsByTag.computeIfAbsent(tagId, id -> new RoaringBitmap()).add((int) postId);
+    }
+}
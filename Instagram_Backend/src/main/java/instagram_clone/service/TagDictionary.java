@@ -0,0 +1,152 @@
+package instagram_clone.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tag name to id cache for this instance, warmed at startup. Misses are
+ * resolved with one IN query and the still-unknown names are inserted in one
+ * batch that tolerates concurrent inserts of the same name. Inserted ids are
+ * cached only once the inserting transaction commits. TagService keeps it in
+ * step with tag edits.
+ */
+@Component
+public class TagDictionary {
+    private static final Logger logger = LoggerFactory.getLogger(TagDictionary.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+
+    public TagDictionary(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        jdbcTemplate.query("SELECT id, name FROM tags",
+                rs -> {
+                    idsByName.put(rs.getString("name"), rs.getLong("id"));
+                });
+        logger.info("Loaded {} tags into the tag dictionary", idsByName.size());
+    }
+
+    /**
+     * Ids for the given names in first-seen order, creating tags that do not exist yet.
+     */
+    public Map<String, Long> resolve(Collection<String> names) {
+        Map<String, Long> resolved = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long id = idsByName.get(name);
+            if (id != null) {
+                resolved.put(name, id);
+            } else if (!resolved.containsKey(name) && !missing.contains(name)) {
+                resolved.put(name, null);
+                missing.add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+
+        Map<String, Long> found = findByNames(missing);
+        List<String> absent = missing.stream().filter(name -> !found.containsKey(name)).toList();
+        if (!absent.isEmpty()) {
+            // A concurrent request may insert the same name; the no-op update makes that harmless
+            jdbcTemplate.batchUpdate("INSERT INTO tags (name) VALUES (:name) ON DUPLICATE KEY UPDATE name = name",
+                    absent.stream().map(name -> new MapSqlParameterSource("name", name)).toArray(MapSqlParameterSource[]::new));
+            found.putAll(findByNames(absent));
+        }
+
+        Map<String, Long> created = new LinkedHashMap<>();
+        for (String name : missing) {
+            Long id = found.get(name);
+            if (id == null) {
+                throw new RuntimeException("Tag could not be created: " + name);
+            }
+            created.put(name, id);
+            resolved.put(name, id);
+        }
+        // A rollback takes the inserted rows with it, so they must not outlive an uncommitted transaction
+        afterCommit(() -> idsByName.putAll(created));
+        return resolved;
+    }
+
+    /**
+     * Ids for the given names that already exist; unknown names are left out.
+     */
+    public Map<String, Long> lookup(Collection<String> names) {
+        Map<String, Long> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long id = idsByName.get(name);
+            if (id != null) {
+                found.put(name, id);
+            } else if (!missing.contains(name)) {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Tags created on another instance are not in this dictionary yet
+            Map<String, Long> loaded = findByNames(missing);
+            idsByName.putAll(loaded);
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    /**
+     * Publishes the id once the current transaction commits, or at once outside one.
+     */
+    public void put(String name, Long id) {
+        afterCommit(() -> idsByName.put(name, id));
+    }
+
+    /**
+     * Forgets the name at once and again after commit, in case a concurrent
+     * resolve re-cached it from the still-committed row in between.
+     */
+    public void remove(String name) {
+        if (name != null) {
+            idsByName.remove(name);
+            afterCommit(() -> idsByName.remove(name));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private Map<String, Long> findByNames(List<String> names) {
+        Map<String, Long> found = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM tags WHERE name IN (:names)",
+                new MapSqlParameterSource("names", names),
+                rs -> {
+                    found.put(rs.getString("name"), rs.getLong("id"));
+                });
+        return found;
+    }
+}
@@ -1,36 +1,62 @@
 package instagram_clone.service;
 
+import instagram_clone.cache.EntityCache;
+import instagram_clone.dto.TagDTO;
+import instagram_clone.dtoconverter.TagConverter;
 import instagram_clone.model.Tag;
 import instagram_clone.repository.TagRepository;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class TagService {
     private final TagRepository tagRepository;
+    private final TagDictionary tagDictionary;
+    private final EntityCache entityCache;
+    private final EntityManager entityManager;
 
     @Autowired
-    public TagService(TagRepository tagRepository) {
+    public TagService(TagRepository tagRepository, TagDictionary tagDictionary, EntityCache entityCache,
+                      EntityManager entityManager) {
         this.tagRepository = tagRepository;
+        this.tagDictionary = tagDictionary;
+        this.entityCache = entityCache;
+        this.entityManager = entityManager;
     }
 
+    @Transactional
     public Tag save(Tag tag) {
-        return this.tagRepository.save(tag);
+        // A rename leaves the old name pointing nowhere
+        if (tag.getId() != null) {
+            this.tagRepository.findById(tag.getId()).ifPresent(existing -> tagDictionary.remove(existing.getName()));
+            entityCache.evictTag(tag.getId());
+        }
+        Tag saved = this.tagRepository.save(tag);
+        tagDictionary.put(saved.getName(), saved.getId());
+        return saved;
     }
 
     public Optional<Tag> findById(Long id) {
-        return this.tagRepository.findById(id);
+        return Optional.ofNullable(entityCache.tag(id,
+                key -> this.tagRepository.findById(key).map(EntityCache::snapshot).orElse(null)));
     }
 
-    public List<Tag> findAll() {
-        return this.tagRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<TagDTO> action) {
+        BatchedStreams.forEach(this.tagRepository.streamAll(), entityManager,
+                tags -> tags.stream().map(TagConverter::toDTO).toList(), action);
     }
 
+    @Transactional
     public void deleteById(Long id) {
+        this.tagRepository.findById(id).ifPresent(existing -> tagDictionary.remove(existing.getName()));
         this.tagRepository.deleteById(id);
+        entityCache.evictTag(id);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,361 @@
+package instagram_clone.service;
+
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.CursorPageDTO;
+import instagram_clone.dtoconverter.ContentDTOAssembler;
+import instagram_clone.event.ContentCreatedEvent;
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.FollowChangedEvent;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user home timelines of followed authors' posts, held as bounded ring
+ * buffers of post ids. A timeline is built from the database on first read;
+ * after that new posts are pushed into it as they are created (fan-out on
+ * write). Authors with more than {@code timelines.fanout.max-followers}
+ * followers are not fanned out: their recent posts live in one shared ring
+ * that followers' timelines merge in at read time (fan-out on read).
+ * Rings are registered before they are loaded, so a post committed during the
+ * load is pushed into them rather than missed; readers wait for the load.
+ */
+@Service
+public class TimelineService {
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentDTOAssembler contentDTOAssembler;
+    private final int capacity;
+    private final long maxFanoutFollowers;
+    private final int maxTimelines;
+    private final Map<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Long, PostRing> pulledAuthors = new ConcurrentHashMap<>();
+    private final ExecutorService fanoutExecutor =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("timeline-fanout-", 0).factory());
+
+    private record Timeline(PostRing posts, long[] pulledAuthorIds) {
+    }
+
+    public TimelineService(JdbcTemplate jdbcTemplate,
+                           ContentDTOAssembler contentDTOAssembler,
+                           @Value("${timelines.capacity:200}") int capacity,
+                           @Value("${timelines.fanout.max-followers:10000}") long maxFanoutFollowers,
+                           @Value("${timelines.max-cached:100000}") int maxTimelines) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.contentDTOAssembler = contentDTOAssembler;
+        this.capacity = capacity;
+        this.maxFanoutFollowers = maxFanoutFollowers;
+        this.maxTimelines = maxTimelines;
+    }
+
+    public CursorPageDTO<ContentDTO> findTimeline(Long userId, int limit, String cursor, ImageSize imageSize) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : Long.parseLong(cursor);
+        List<Long> ids = timelineIds(userId, beforeId, pageSize);
+        String nextCursor = ids.size() == pageSize ? String.valueOf(ids.get(pageSize - 1)) : null;
+        return new CursorPageDTO<>(contentDTOAssembler.assemble(ids, imageSize), nextCursor);
+    }
+
+    /**
+     * Newest-first post ids below {@code beforeId}, merged from the user's ring and the
+     * rings of high-follower authors they follow.
+     */
+    public List<Long> timelineIds(Long userId, long beforeId, int limit) {
+        Timeline timeline = timelines.get(userId);
+        if (timeline == null) {
+            timeline = materialize(userId);
+        }
+
+        List<PostRing> rings = new ArrayList<>();
+        rings.add(timeline.posts());
+        for (long authorId : timeline.pulledAuthorIds()) {
+            // Loaded outside computeIfAbsent, whose bin lock would pin a virtual thread during the query
+            PostRing ring = pulledAuthors.get(authorId);
+            if (ring == null) {
+                PostRing empty = new PostRing(capacity);
+                ring = pulledAuthors.putIfAbsent(authorId, empty);
+                if (ring == null) {
+                    ring = empty;
+                    fill(ring, () -> pulledAuthors.remove(authorId, empty),
+                            "SELECT id FROM contents WHERE author_id = ? AND type = 'POST' ORDER BY id DESC LIMIT ?",
+                            authorId, capacity + 1);
+                }
+            }
+            rings.add(ring);
+        }
+
+        // Below the oldest id a truncated ring still holds, that ring may be missing posts
+        long completeAbove = 0;
+        long[] merged = new long[0];
+        for (PostRing ring : rings) {
+            PostRing.Slice slice = ring.before(beforeId, limit);
+            merged = mergeDescending(merged, slice.ids(), limit);
+            completeAbove = Math.max(completeAbove, slice.completeAbove());
+        }
+
+        List<Long> ids = new ArrayList<>(merged.length);
+        for (long id : merged) {
+            if (id > completeAbove) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() < limit && completeAbove > 0) {
+            // Scrolled past what memory holds
+            return jdbcTemplate.queryForList(
+                    "SELECT c.id FROM contents c JOIN follows f ON f.followee_id = c.author_id" +
+                    " WHERE f.follower_id = ? AND c.type = 'POST' AND c.id < ? ORDER BY c.id DESC LIMIT ?",
+                    Long.class, userId, beforeId, limit);
+        }
+        return ids;
+    }
+
+    @TransactionalEventListener
+    public void onContentCreated(ContentCreatedEvent event) {
+        if (event.type() != ContentType.POST) {
+            return;
+        }
+        fanoutExecutor.execute(() -> fanOut(event.authorId(), event.contentId()));
+    }
+
+    @TransactionalEventListener
+    public void onContentDeleted(ContentDeletedEvent event) {
+        Set<Long> deleted = new HashSet<>(event.contentIds());
+        // On the fan-out thread, after any push of these posts queued before the deletion
+        fanoutExecutor.execute(() -> {
+            timelines.values().forEach(timeline -> timeline.posts().remove(deleted));
+            pulledAuthors.values().forEach(ring -> ring.remove(deleted));
+        });
+    }
+
+    @TransactionalEventListener
+    public void onFollowChanged(FollowChangedEvent event) {
+        // Rebuilt from the follow table on the next read
+        timelines.remove(event.followerId());
+        if (event.following() && event.followerCount() == maxFanoutFollowers + 1) {
+            // The author just stopped being fanned out; timelines built before still expect pushes
+            fanoutExecutor.execute(() -> jdbcTemplate.query("SELECT follower_id FROM follows WHERE followee_id = ?",
+                    rs -> {
+                        timelines.remove(rs.getLong(1));
+                    },
+                    event.followeeId()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        fanoutExecutor.shutdown();
+        fanoutExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void fanOut(Long authorId, Long postId) {
+        try {
+            Long followerCount = jdbcTemplate.queryForObject(
+                    "SELECT follower_count FROM users WHERE id = ?", Long.class, authorId);
+            if (followerCount != null && followerCount > maxFanoutFollowers) {
+                PostRing ring = pulledAuthors.get(authorId);
+                if (ring != null) {
+                    ring.add(postId);
+                }
+                return;
+            }
+            // Only timelines someone has read are kept; the rest pick the post up when built
+            jdbcTemplate.query("SELECT follower_id FROM follows WHERE followee_id = ?",
+                    rs -> {
+                        Timeline timeline = timelines.get(rs.getLong(1));
+                        if (timeline != null) {
+                            timeline.posts().add(postId);
+                        }
+                    },
+                    authorId);
+        } catch (RuntimeException e) {
+            logger.error("Failed to fan out post {} of user {}", postId, authorId, e);
+        }
+    }
+
+    private Timeline materialize(Long userId) {
+        long[] pulled = jdbcTemplate.queryForList(
+                "SELECT f.followee_id FROM follows f JOIN users u ON u.id = f.followee_id" +
+                " WHERE f.follower_id = ? AND u.follower_count > ?",
+                Long.class, userId, maxFanoutFollowers).stream().mapToLong(Long::longValue).toArray();
+        if (timelines.size() >= maxTimelines) {
+            // Cheap random eviction; an evicted timeline is rebuilt on its owner's next read
+            Iterator<Long> keys = timelines.keySet().iterator();
+            if (keys.hasNext()) {
+                timelines.remove(keys.next());
+            }
+        }
+        Timeline timeline = new Timeline(new PostRing(capacity), pulled);
+        Timeline existing = timelines.putIfAbsent(userId, timeline);
+        if (existing != null) {
+            return existing;
+        }
+        fill(timeline.posts(), () -> timelines.remove(userId, timeline),
+                "SELECT c.id FROM contents c JOIN follows f ON f.followee_id = c.author_id" +
+                " JOIN users u ON u.id = c.author_id" +
+                " WHERE f.follower_id = ? AND c.type = 'POST' AND u.follower_count <= ?" +
+                " ORDER BY c.id DESC LIMIT ?",
+                userId, maxFanoutFollowers, capacity + 1);
+        return timeline;
+    }
+
+    // Loads a registered ring; on failure it is unregistered and its waiting readers fail too
+    private void fill(PostRing ring, Runnable unregister, String sql, Object... args) {
+        try {
+            ring.fill(jdbcTemplate.queryForList(sql, Long.class, args));
+        } catch (RuntimeException e) {
+            unregister.run();
+            ring.fail(e);
+            throw e;
+        }
+    }
+
+    private static long[] mergeDescending(long[] a, long[] b, int limit) {
+        long[] merged = new long[Math.min(a.length + b.length, limit)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (n < merged.length && (i < a.length || j < b.length)) {
+            long next;
+            if (j >= b.length || (i < a.length && a[i] >= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            // An author can briefly be both fanned out and pulled while crossing the threshold
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, n);
+    }
+
+    /**
+     * Bounded ring of post ids, newest first. New posts normally arrive in id order
+     * and are appended in O(1); late arrivals are shifted into place. Reads wait
+     * until the ring has been filled from the database.
+     */
+    static final class PostRing {
+        private final long[] ids;
+        private final CompletableFuture<Void> filled = new CompletableFuture<>();
+        private int head = -1;
+        private int size;
+        // Set once an id has been dropped, after which the oldest held id is a lower bound
+        private boolean truncated;
+        // Deleted while the fill query may already have read them
+        private Set<Long> removedBeforeFill = new HashSet<>();
+
+        record Slice(long[] ids, long completeAbove) {
+        }
+
+        PostRing(int capacity) {
+            this.ids = new long[capacity];
+        }
+
+        // Expects ids newest first; one more id than capacity marks the ring as truncated
+        static PostRing of(List<Long> newestFirst, int capacity) {
+            PostRing ring = new PostRing(capacity);
+            ring.fill(newestFirst);
+            return ring;
+        }
+
+        // Merges in ids loaded from the database; pushes that arrived meanwhile are kept
+        synchronized void fill(List<Long> newestFirst) {
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                if (!removedBeforeFill.contains(newestFirst.get(i))) {
+                    add(newestFirst.get(i));
+                }
+            }
+            truncated |= newestFirst.size() > ids.length;
+            removedBeforeFill = null;
+            filled.complete(null);
+        }
+
+        void fail(RuntimeException e) {
+            filled.completeExceptionally(e);
+        }
+
+        synchronized void remove(Set<Long> deleted) {
+            if (removedBeforeFill != null) {
+                removedBeforeFill.addAll(deleted);
+            }
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                long id = get(i);
+                if (!deleted.contains(id)) {
+                    set(kept++, id);
+                }
+            }
+            size = kept;
+        }
+
+        synchronized void add(long id) {
+            int newer = 0;
+            while (newer < size && get(newer) > id) {
+                newer++;
+            }
+            if (newer < size && get(newer) == id) {
+                return;
+            }
+            if (newer == size && size == ids.length) {
+                truncated = true;
+                return;
+            }
+            head = (head + 1) % ids.length;
+            if (size < ids.length) {
+                size++;
+            } else {
+                truncated = true;
+            }
+            for (int i = 0; i < newer; i++) {
+                set(i, get(i + 1));
+            }
+            set(newer, id);
+        }
+
+        Slice before(long beforeId, int limit) {
+            filled.join();
+            return slice(beforeId, limit);
+        }
+
+        private synchronized Slice slice(long beforeId, int limit) {
+            int start = 0;
+            while (start < size && get(start) >= beforeId) {
+                start++;
+            }
+            long[] slice = new long[Math.max(0, Math.min(limit, size - start))];
+            for (int i = 0; i < slice.length; i++) {
+                slice[i] = get(start + i);
+            }
+            return new Slice(slice, truncated && size > 0 ? get(size - 1) - 1 : 0);
+        }
+
+        private long get(int index) {
+            return ids[Math.floorMod(head - index, ids.length)];
+        }
+
+        private void set(int index, long id) {
+            ids[Math.floorMod(head - index, ids.length)] = id;
+        }
+    }
+}
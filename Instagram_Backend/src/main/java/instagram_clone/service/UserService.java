@@ -1,13 +1,21 @@
 package instagram_clone.service;
 
+import instagram_clone.cache.EntityCache;
+import instagram_clone.dto.SessionDTO;
 import instagram_clone.dto.UserCreateDTO;
 import instagram_clone.dto.UserDTO;
 import instagram_clone.dtoconverter.UserConverter;
 import instagram_clone.dtoconverter.UserCreateConverter;
 import instagram_clone.exceptions.NonexistentUser;
+import instagram_clone.model.AvatarSize;
 import instagram_clone.model.User;
+import instagram_clone.model.UserRole;
 import instagram_clone.repository.UserRepository;
 import instagram_clone.security.PasswordEncoder;
+import instagram_clone.security.SessionTokenService;
+import instagram_clone.security.TokenRevocations;
+import instagram_clone.storage.AvatarStore;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
@@ -15,7 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,10 +31,30 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ScoreLedgerService scoreLedgerService;
+    private final EntityCache entityCache;
+    private final AvatarStore avatarStore;
+    private final EntityManager entityManager;
+    private final SessionTokenService sessionTokenService;
+    private final TokenRevocations tokenRevocations;
+    private final FollowService followService;
+
+    public record Avatar(String hash, String version) {
+    }
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       ScoreLedgerService scoreLedgerService, EntityCache entityCache, AvatarStore avatarStore,
+                       EntityManager entityManager, SessionTokenService sessionTokenService,
+                       TokenRevocations tokenRevocations, FollowService followService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.scoreLedgerService = scoreLedgerService;
+        this.entityCache = entityCache;
+        this.avatarStore = avatarStore;
+        this.entityManager = entityManager;
+        this.sessionTokenService = sessionTokenService;
+        this.tokenRevocations = tokenRevocations;
+        this.followService = followService;
     }
 
     public UserDTO create(UserCreateDTO userDTO) {
@@ -38,79 +66,115 @@ public class UserService {
         return UserConverter.toDTO(user);
     }
 
-    public UserDTO login(String username, String password) {
+    public SessionDTO login(String username, String password) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new NonexistentUser("User not found"));
 
         if (!passwordEncoder.matches(password, user.getPassword())) {
             throw new RuntimeException("Invalid password");
         }
+        if (Boolean.TRUE.equals(user.getBanned())) {
+            throw new RuntimeException("User is banned");
+        }
 
-        return UserConverter.toDTO(user);
+        SessionTokenService.IssuedToken token = sessionTokenService.issue(user.getId(),
+                user.getRole() != null ? user.getRole() : UserRole.USER);
+        return new SessionDTO(scoreLedgerService.withCurrentScore(UserConverter.toDTO(user)), token.token(), token.expiresAt());
+    }
+
+    public void logout(String accessToken) {
+        tokenRevocations.revokeToken(accessToken);
     }
 
+    /**
+     * @param moderate whether the caller may change the user's role and ban; otherwise both are kept
+     */
     @Transactional
-    public UserDTO update(Long id, UserDTO userDTO) {
+    public UserDTO update(Long id, UserDTO userDTO, boolean moderate) {
         User existingUser = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
 
+        if (moderate) {
+            // Tokens carry the role, so a role change or ban must not wait for them to expire
+            if (userDTO.getRole() != existingUser.getRole() || Boolean.TRUE.equals(userDTO.getBanned())) {
+                tokenRevocations.revokeUser(id);
+            }
+            existingUser.setRole(userDTO.getRole());
+            existingUser.setBanned(userDTO.getBanned());
+        }
         existingUser.setUsername(userDTO.getUsername());
         existingUser.setEmail(userDTO.getEmail());
-        existingUser.setRole(userDTO.getRole());
-        existingUser.setScore(userDTO.getScore());
-        existingUser.setBanned(userDTO.getBanned());
+        // The score is read-only here: clients echo back the score they loaded, which would undo newer votes
 
         User updatedUser = userRepository.save(existingUser);
-        return UserConverter.toDTO(updatedUser);
+        entityCache.evictUser(id);
+        return scoreLedgerService.withCurrentScore(UserConverter.toDTO(updatedUser));
     }
 
-    @Transactional(readOnly = true)
-    public UserDTO findById(Long id) {
+    /**
+     * Applies a manual correction to the user's score as a ledger event, so it adds
+     * to concurrent votes instead of overwriting them.
+     */
+    @Transactional
+    public UserDTO adjustScore(Long id, double delta) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
-        return UserConverter.toDTO(user);
+        scoreLedgerService.record(id, delta, null);
+        return scoreLedgerService.withCurrentScore(UserConverter.toDTO(user));
     }
 
+    public UserDTO findById(Long id) {
+        User user = entityCache.user(id, key -> userRepository.findById(key).map(EntityCache::snapshot).orElse(null));
+        if (user == null) {
+            throw new RuntimeException("User not found with id: " + id);
+        }
+        return scoreLedgerService.withCurrentScore(UserConverter.toDTO(user));
+    }
+
+    // Scores are looked up once per batch rather than per user
     @Transactional(readOnly = true)
-    public List<UserDTO> findAll() {
-        return userRepository.findAll().stream()
-                .map(UserConverter::toDTO)
-                .collect(Collectors.toList());
+    public void streamAll(Consumer<UserDTO> action) {
+        BatchedStreams.forEach(userRepository.streamAll(), entityManager,
+                users -> scoreLedgerService.withCurrentScores(users.stream()
+                        .map(UserConverter::toDTO)
+                        .collect(Collectors.toList())), action);
     }
 
+    @Transactional
     public void deleteById(Long id) {
+        followService.unfollowAll(id);
         this.userRepository.deleteById(id);
+        entityCache.evictUser(id);
+        tokenRevocations.revokeUser(id);
     }
 
-    @Transactional(readOnly = true)
-    public UserDTO findByIdWithProfilePicture(Long id) {
-        System.err.println("Fetching user with ID: " + id);
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
-        
-        System.err.println("User profile picture exists: " + (user.getProfilePicture() != null));
-        if (user.getProfilePicture() != null) {
-            System.err.println("Profile picture size: " + user.getProfilePicture().length + " bytes");
+    /**
+     * @return the blob holding the user's avatar at the given size, or null if they have none
+     */
+    public Avatar findAvatar(Long id, AvatarSize avatarSize) {
+        User user = entityCache.user(id, key -> userRepository.findById(key).map(EntityCache::snapshot).orElse(null));
+        if (user == null) {
+            throw new RuntimeException("User not found with id: " + id);
         }
-        
-        return UserConverter.toDTO(user);
+        if (user.getAvatarHash() == null) {
+            return null;
+        }
+        return new Avatar(UserConverter.avatarHashFor(user, avatarSize), AvatarStore.versionOf(user.getAvatarHash()));
     }
 
     @Transactional
     public UserDTO updateProfilePicture(Long id, MultipartFile profilePicture) {
-        System.err.println("Updating profile picture for user ID: " + id);
-        System.err.println("Received file size: " + profilePicture.getSize() + " bytes");
-        
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
 
         try {
-            byte[] pictureBytes = profilePicture.getBytes();
-            System.err.println("Converted file to " + pictureBytes.length + " bytes");
-            user.setProfilePicture(pictureBytes);
+            AvatarStore.Avatar avatar = avatarStore.put(profilePicture.getBytes());
+            user.setAvatarHash(avatar.hash());
+            user.setAvatarSmallHash(avatar.smallHash());
+            user.setAvatarMediumHash(avatar.mediumHash());
             User updatedUser = userRepository.save(user);
-            System.err.println("Profile picture saved successfully");
-            return UserConverter.toDTO(updatedUser);
+            entityCache.evictUser(id);
+            return scoreLedgerService.withCurrentScore(UserConverter.toDTO(updatedUser));
         } catch (IOException e) {
             throw new RuntimeException("Failed to process profile picture: " + e.getMessage(), e);
         }
@@ -0,0 +1,180 @@
+package instagram_clone.service;
+
+import instagram_clone.cache.EntityCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Recomputes the denormalized vote counters on {@code contents} from the
+ * {@code votes} table. The id range is split into chunks that are checked in
+ * parallel; only rows that drifted are rewritten. Runs at startup by itself
+ * when the counters have never been filled, as after upgrading a database that
+ * already held votes.
+ */
+@Service
+public class VoteCounterReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(VoteCounterReconciler.class);
+
+    private static final String FIND_DRIFT_SQL =
+            "SELECT id, upvote_count, downvote_count, actual_up, actual_down FROM (" +
+            " SELECT c.id, c.upvote_count, c.downvote_count," +
+            "  COALESCE(SUM(CASE WHEN v.type = 'UPVOTE' THEN 1 ELSE 0 END), 0) AS actual_up," +
+            "  COALESCE(SUM(CASE WHEN v.type = 'DOWN_VOTE' THEN 1 ELSE 0 END), 0) AS actual_down" +
+            " FROM contents c LEFT JOIN votes v ON v.content_id = c.id" +
+            " WHERE c.id BETWEEN ? AND ?" +
+            " GROUP BY c.id, c.upvote_count, c.downvote_count) counts" +
+            " WHERE upvote_count <> actual_up OR downvote_count <> actual_down";
+
+    // Recomputed inside the UPDATE so votes committed since the scan are not lost
+    private static final String REPAIR_SQL =
+            "UPDATE contents SET" +
+            " upvote_count = (SELECT COUNT(*) FROM votes v WHERE v.content_id = ? AND v.type = 'UPVOTE')," +
+            " downvote_count = (SELECT COUNT(*) FROM votes v WHERE v.content_id = ? AND v.type = 'DOWN_VOTE')" +
+            " WHERE id = ?";
+
+    // Hibernate adds the counter columns as 0, so right after an upgrade even the
+    // most recently voted content reads 0/0; maintained counters never do
+    private static final String UNINITIALIZED_SQL =
+            "SELECT COUNT(*) FROM contents c" +
+            " WHERE c.id = (SELECT v.content_id FROM votes v ORDER BY v.id DESC LIMIT 1)" +
+            " AND c.upvote_count = 0 AND c.downvote_count = 0";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCache entityCache;
+    private final boolean enabled;
+    private final boolean runOnStartup;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Counter driftedRows;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public VoteCounterReconciler(JdbcTemplate jdbcTemplate,
+                                 EntityCache entityCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${votes.reconcile.enabled:true}") boolean enabled,
+                                 @Value("${votes.reconcile.on-startup:false}") boolean runOnStartup,
+                                 @Value("${votes.reconcile.chunk-size:5000}") int chunkSize,
+                                 @Value("${votes.reconcile.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityCache = entityCache;
+        this.enabled = enabled;
+        this.runOnStartup = runOnStartup;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.driftedRows = Counter.builder("votes.counters.drifted")
+                .description("Content rows whose vote counters disagreed with the votes table")
+                .register(meterRegistry);
+    }
+
+    public record Report(long scannedFrom, long scannedTo, int driftedRows, long absoluteDrift) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        if (runOnStartup) {
+            reconcile();
+        } else if (countersUninitialized()) {
+            logger.info("Vote counters have not been filled yet, reconciling them now");
+            reconcile();
+        }
+    }
+
+    // A single lookup of the newest vote, cheap enough for every startup
+    public boolean countersUninitialized() {
+        Integer rows = jdbcTemplate.queryForObject(UNINITIALIZED_SQL, Integer.class);
+        return rows != null && rows > 0;
+    }
+
+    @Scheduled(cron = "${votes.reconcile.cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    public Report reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Vote counter reconciliation already running, skipping");
+            return new Report(0, 0, 0, 0);
+        }
+        try {
+            Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi FROM contents");
+            if (bounds.get("lo") == null) {
+                return new Report(0, 0, 0, 0);
+            }
+            long lo = ((Number) bounds.get("lo")).longValue();
+            long hi = ((Number) bounds.get("hi")).longValue();
+
+            List<Future<long[]>> chunks = new ArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                    Thread.ofVirtual().name("vote-reconcile-", 0).factory())) {
+                for (long from = lo; from <= hi; from += chunkSize) {
+                    long chunkFrom = from;
+                    long chunkTo = Math.min(hi, from + chunkSize - 1);
+                    chunks.add(executor.submit(() -> reconcileChunk(chunkFrom, chunkTo)));
+                }
+            }
+
+            int drifted = 0;
+            long absoluteDrift = 0;
+            for (Future<long[]> chunk : chunks) {
+                long[] result = chunk.get();
+                drifted += (int) result[0];
+                absoluteDrift += result[1];
+            }
+
+            driftedRows.increment(drifted);
+            if (drifted > 0) {
+                logger.warn("Repaired vote counters on {} contents (total drift {}) in ids {}..{}",
+                        drifted, absoluteDrift, lo, hi);
+            } else {
+                logger.info("Vote counters consistent for ids {}..{}", lo, hi);
+            }
+            return new Report(lo, hi, drifted, absoluteDrift);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Vote counter reconciliation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Vote counter reconciliation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long[] reconcileChunk(long from, long to) {
+        List<Object[]> repairs = new ArrayList<>();
+        long[] absoluteDrift = {0};
+        jdbcTemplate.query(FIND_DRIFT_SQL, rs -> {
+            long id = rs.getLong("id");
+            absoluteDrift[0] += Math.abs(rs.getLong("upvote_count") - rs.getLong("actual_up"))
+                    + Math.abs(rs.getLong("downvote_count") - rs.getLong("actual_down"));
+            repairs.add(new Object[]{id, id, id});
+        }, from, to);
+
+        if (!repairs.isEmpty()) {
+            jdbcTemplate.batchUpdate(REPAIR_SQL, repairs);
+            entityCache.evictContents(repairs.stream().map(repair -> (Long) repair[0]).toList());
+        }
+        return new long[]{repairs.size(), absoluteDrift[0]};
+    }
+}
@@ -1,6 +1,9 @@
 package instagram_clone.service;
 
 import instagram_clone.dto.ScoreDTO;
+import instagram_clone.dto.VoteDTO;
+import instagram_clone.dtoconverter.VoteConverter;
+import instagram_clone.event.ContentVotedEvent;
 import instagram_clone.model.Vote;
 import instagram_clone.model.VoteType;
 import instagram_clone.model.User;
@@ -8,6 +11,8 @@ import instagram_clone.model.Content;
 import instagram_clone.repository.VoteRepository;
 import instagram_clone.repository.UserRepository;
 import instagram_clone.repository.ContentRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
@@ -16,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 public class VoteService {
@@ -25,17 +31,23 @@ public class VoteService {
     private final UserRepository userRepository;
     private final ContentRepository contentRepository;
     private final ScoreCalculationService scoreCalculationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
 
     public VoteService(
             VoteRepository voteRepository,
             UserRepository userRepository,
             ContentRepository contentRepository,
-            ScoreCalculationService scoreCalculationService
+            ScoreCalculationService scoreCalculationService,
+            ApplicationEventPublisher eventPublisher,
+            EntityManager entityManager
     ) {
         this.voteRepository = voteRepository;
         this.userRepository = userRepository;
         this.contentRepository = contentRepository;
         this.scoreCalculationService = scoreCalculationService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
     }
 
     @Transactional
@@ -57,23 +69,29 @@ public class VoteService {
         vote.setUser(user);
         vote.setContent(content);
         vote.setDateTime(LocalDateTime.now());
-        return this.voteRepository.save(vote);
+        Vote savedVote = this.voteRepository.save(vote);
+        this.contentRepository.applyVoteTransition(content.getId(), null, savedVote.getType());
+        this.eventPublisher.publishEvent(new ContentVotedEvent(List.of(content.getId())));
+        return savedVote;
     }
 
     public Optional<Vote> findById(Long id) {
         return this.voteRepository.findById(id);
     }
 
-    public List<Vote> findAll() {
-        return this.voteRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<VoteDTO> action) {
+        BatchedStreams.forEach(this.voteRepository.streamAll(), entityManager,
+                votes -> votes.stream().map(VoteConverter::toDTO).toList(), action);
     }
 
     @Transactional
     public void deleteById(Long id) {
-        if (!this.voteRepository.existsById(id)) {
-            throw new RuntimeException("Vote not found with id: " + id);
-        }
-        this.voteRepository.deleteById(id);
+        Vote vote = this.voteRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Vote not found with id: " + id));
+        this.voteRepository.delete(vote);
+        this.contentRepository.applyVoteTransition(vote.getContent().getId(), vote.getType(), null);
+        this.eventPublisher.publishEvent(new ContentVotedEvent(List.of(vote.getContent().getId())));
     }
 
     public List<Vote> findByUserId(Long userId) {
@@ -109,9 +127,13 @@ public class VoteService {
         Optional<Vote> existingVote = findByUserIdAndContentId(userId, contentId);
         if (existingVote.isPresent()) {
             Vote vote = existingVote.get();
+            VoteType oldType = vote.getType();
             vote.setType(newType);
             vote.setDateTime(LocalDateTime.now());
-            return this.voteRepository.save(vote);
+            Vote savedVote = this.voteRepository.save(vote);
+            this.contentRepository.applyVoteTransition(contentId, oldType, newType);
+            this.eventPublisher.publishEvent(new ContentVotedEvent(List.of(contentId)));
+            return savedVote;
         }
         throw new RuntimeException("Vote not found for user " + userId + " and content " + contentId);
     }
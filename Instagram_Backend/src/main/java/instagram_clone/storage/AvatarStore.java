@@ -0,0 +1,54 @@
+package instagram_clone.storage;
+
+import instagram_clone.model.AvatarSize;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Stores user avatars in the blob store along with a downscaled rendition for
+ * each {@link AvatarSize}. Avatars are small, so renditions are produced on
+ * upload instead of being queued like post images.
+ */
+@Component
+public class AvatarStore {
+    private static final int VERSION_LENGTH = 16;
+
+    private final BlobStore blobStore;
+
+    public record Avatar(String hash, String smallHash, String mediumHash) {
+    }
+
+    public AvatarStore(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Versioned avatar URL; a new upload changes the version, so clients may cache each URL indefinitely.
+     */
+    public static String urlFor(Long userId, String hash) {
+        return hash == null ? null : "/users/" + userId + "/avatar?v=" + versionOf(hash);
+    }
+
+    public static String versionOf(String hash) {
+        return hash == null ? null : hash.substring(0, VERSION_LENGTH);
+    }
+
+    public Avatar put(byte[] bytes) throws IOException {
+        String hash = blobStore.put(bytes);
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (source == null) {
+            // Not a format ImageIO can decode; every size serves the original
+            return new Avatar(hash, hash, hash);
+        }
+        return new Avatar(hash, render(source, hash, AvatarSize.SMALL), render(source, hash, AvatarSize.MEDIUM));
+    }
+
+    private String render(BufferedImage source, String originalHash, AvatarSize size) throws IOException {
+        byte[] rendition = ImageScaler.scaleToWidth(source, size.getMaxWidth());
+        return rendition == null ? originalHash : blobStore.put(rendition);
+    }
+}
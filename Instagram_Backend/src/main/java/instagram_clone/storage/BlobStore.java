@@ -0,0 +1,110 @@
+package instagram_clone.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed blob store on the local filesystem. Blobs are keyed by the
+ * hex SHA-256 of their bytes and laid out as {@code root/ab/cd/<hash>}.
+ */
+@Component
+public class BlobStore {
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final String MEDIA_PATH = "/media/";
+
+    private final Path root;
+    private final Path tmp;
+
+    public BlobStore(@Value("${media.storage.path:media}") String rootPath) {
+        this.root = Paths.get(rootPath).toAbsolutePath().normalize();
+        this.tmp = root.resolve("tmp");
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot initialise blob store at " + root, e);
+        }
+    }
+
+    public static String urlFor(String hash) {
+        return hash == null ? null : MEDIA_PATH + hash;
+    }
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH_PATTERN.matcher(hash).matches();
+    }
+
+    public String put(byte[] bytes) {
+        return put(new ByteArrayInputStream(bytes));
+    }
+
+    public String put(InputStream in) {
+        Path staging = null;
+        try {
+            staging = Files.createTempFile(tmp, "upload-", ".part");
+            MessageDigest digest = sha256();
+            try (InputStream source = in;
+                 OutputStream out = new DigestOutputStream(Files.newOutputStream(staging), digest)) {
+                source.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            if (Files.exists(target)) {
+                return hash;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Same bytes were stored concurrently; the existing blob is identical
+            }
+            return hash;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store blob", e);
+        } finally {
+            if (staging != null) {
+                try {
+                    Files.deleteIfExists(staging);
+                } catch (IOException ignored) {
+                    // Left for the next cleanup; the committed blob is unaffected
+                }
+            }
+        }
+    }
+
+    public Optional<Path> find(String hash) {
+        if (!isValidHash(hash)) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package instagram_clone.storage;
+
+import instagram_clone.cache.EntityCache;
+import instagram_clone.event.ContentCreatedEvent;
+import instagram_clone.model.ImageSize;
+import instagram_clone.repository.ContentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates downscaled renditions of uploaded post images once the post is
+ * committed. Work runs on a bounded pool of virtual threads; when the queue is
+ * full the upload is skipped and clients keep receiving the original until a
+ * backfill sweep picks it up. The sweep also covers images migrated from before
+ * renditions existed.
+ */
+@Service
+public class ImageRenditionService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    private final BlobStore blobStore;
+    private final ContentRepository contentRepository;
+    private final EntityCache entityCache;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Counter rejectedCounter;
+    private final Counter backfilledCounter;
+    private final boolean backfillEnabled;
+    private final int backfillBatchSize;
+    // Keyset position of the sweep, so images that cannot be decoded do not hold it up
+    private long backfillAfterId;
+
+    public ImageRenditionService(BlobStore blobStore,
+                                 ContentRepository contentRepository,
+                                 EntityCache entityCache,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${media.renditions.workers:4}") int workers,
+                                 @Value("${media.renditions.queue-capacity:256}") int queueCapacity,
+                                 @Value("${media.renditions.backfill.enabled:true}") boolean backfillEnabled,
+                                 @Value("${media.renditions.backfill.batch-size:50}") int backfillBatchSize) {
+        this.blobStore = blobStore;
+        this.contentRepository = contentRepository;
+        this.entityCache = entityCache;
+        this.backfillEnabled = backfillEnabled;
+        this.backfillBatchSize = backfillBatchSize;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("image-rendition-", 0).factory());
+        this.processingTimer = Timer.builder("media.renditions.processing")
+                .description("Time to produce all renditions of one image")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("media.renditions.rejected")
+                .description("Images skipped because the rendition queue was full")
+                .register(meterRegistry);
+        this.backfilledCounter = Counter.builder("media.renditions.backfilled")
+                .description("Images queued by the backfill sweep")
+                .register(meterRegistry);
+        Gauge.builder("media.renditions.queue.depth", executor, e -> e.getQueue().size())
+                .description("Images waiting for rendition")
+                .register(meterRegistry);
+        Gauge.builder("media.renditions.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @TransactionalEventListener
+    public void onContentCreated(ContentCreatedEvent event) {
+        if (event.imageHash() == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> processingTimer.record(() -> generate(event.contentId(), event.imageHash())));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            logger.warn("Rendition queue full, serving original image for content {}", event.contentId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${media.renditions.backfill.interval-ms:60000}")
+    public void scheduledBackfill() {
+        if (backfillEnabled) {
+            backfill();
+        }
+    }
+
+    /**
+     * Queues one bounded batch of images that still lack renditions, using at most
+     * half of the free queue so fresh uploads are not rejected because of it.
+     *
+     * @return number of images queued
+     */
+    public int backfill() {
+        int limit = Math.min(backfillBatchSize, executor.getQueue().remainingCapacity() / 2);
+        if (limit <= 0) {
+            return 0;
+        }
+        List<Object[]> rows = contentRepository.findMissingRenditionsAfter(backfillAfterId, Limit.of(limit));
+        int queued = 0;
+        for (Object[] row : rows) {
+            Long contentId = (Long) row[0];
+            String hash = (String) row[1];
+            try {
+                executor.execute(() -> processingTimer.record(() -> generate(contentId, hash)));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+            backfillAfterId = contentId;
+            queued++;
+        }
+        // Start over once the end is reached, retrying whatever is still missing
+        if (rows.size() < limit) {
+            backfillAfterId = 0;
+        }
+        backfilledCounter.increment(queued);
+        return queued;
+    }
+
+    private void generate(Long contentId, String hash) {
+        try {
+            Path original = blobStore.find(hash).orElse(null);
+            if (original == null) {
+                return;
+            }
+            BufferedImage source;
+            try (InputStream in = Files.newInputStream(original)) {
+                source = ImageIO.read(in);
+            }
+            if (source == null) {
+                // Not a format ImageIO can decode; the original stays the only rendition
+                return;
+            }
+
+            String mediumHash = renderIfLarger(source, hash, ImageSize.MEDIUM);
+            String smallHash = renderIfLarger(source, hash, ImageSize.SMALL);
+            contentRepository.updateImageRenditions(contentId, smallHash, mediumHash);
+            entityCache.evictContent(contentId);
+        } catch (Exception e) {
+            logger.error("Failed to generate renditions for content {}", contentId, e);
+        }
+    }
+
+    private String renderIfLarger(BufferedImage source, String originalHash, ImageSize size) throws IOException {
+        byte[] rendition = ImageScaler.scaleToWidth(source, size.getMaxWidth());
+        return rendition == null ? originalHash : blobStore.put(rendition);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,44 @@
+package instagram_clone.storage;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Downscales decoded images to a maximum width, keeping the aspect ratio.
+ * Images with transparency are encoded as PNG, everything else as JPEG.
+ */
+final class ImageScaler {
+
+    private ImageScaler() {
+    }
+
+    /**
+     * @return the encoded rendition, or null when the source is no wider than {@code maxWidth}
+     */
+    static byte[] scaleToWidth(BufferedImage source, int maxWidth) throws IOException {
+        if (maxWidth <= 0 || source.getWidth() <= maxWidth) {
+            return null;
+        }
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * maxWidth / source.getWidth()));
+        boolean alpha = source.getColorModel().hasAlpha();
+
+        BufferedImage scaled = new BufferedImage(maxWidth, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, maxWidth, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scaled, alpha ? "png" : "jpg", out);
+        return out.toByteArray();
+    }
+}
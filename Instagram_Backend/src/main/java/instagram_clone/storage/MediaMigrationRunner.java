@@ -0,0 +1,136 @@
+package instagram_clone.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves image bytes still stored in the legacy {@code contents.image} and
+ * {@code users.profile_picture} columns into the blob store, one bounded batch
+ * at a time, and clears the columns afterwards.
+ */
+@Component
+public class MediaMigrationRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(MediaMigrationRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final AvatarStore avatarStore;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public MediaMigrationRunner(JdbcTemplate jdbcTemplate,
+                                BlobStore blobStore,
+                                AvatarStore avatarStore,
+                                @Value("${media.migration.enabled:true}") boolean enabled,
+                                @Value("${media.migration.batch-size:50}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.avatarStore = avatarStore;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        if (legacyColumnExists("contents", "image")) {
+            migrateContentImages();
+        }
+        if (legacyColumnExists("users", "profile_picture")) {
+            migrateProfilePictures();
+        }
+    }
+
+    private void migrateContentImages() {
+        long migrated = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT id, image FROM contents WHERE id > ? AND image IS NOT NULL AND image_hash IS NULL ORDER BY id LIMIT ?",
+                    rs -> {
+                        try (InputStream image = rs.getBinaryStream("image")) {
+                            updates.add(new Object[]{blobStore.put(image), rs.getLong("id")});
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    lastId, batchSize);
+            if (updates.isEmpty()) {
+                break;
+            }
+
+            jdbcTemplate.batchUpdate("UPDATE contents SET image_hash = ?, image = NULL WHERE id = ?", updates);
+            migrated += updates.size();
+            lastId = (Long) updates.get(updates.size() - 1)[1];
+        }
+
+        if (migrated > 0) {
+            logger.info("Migrated {} content images into the blob store", migrated);
+        }
+    }
+
+    private void migrateProfilePictures() {
+        long migrated = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> updates = new ArrayList<>();
+            jdbcTemplate.query(
+                    "SELECT id, profile_picture FROM users WHERE id > ? AND profile_picture IS NOT NULL AND avatar_hash IS NULL ORDER BY id LIMIT ?",
+                    rs -> {
+                        try {
+                            AvatarStore.Avatar avatar = avatarStore.put(rs.getBytes("profile_picture"));
+                            updates.add(new Object[]{avatar.hash(), avatar.smallHash(), avatar.mediumHash(), rs.getLong("id")});
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    },
+                    lastId, batchSize);
+            if (updates.isEmpty()) {
+                break;
+            }
+
+            jdbcTemplate.batchUpdate("UPDATE users SET avatar_hash = ?, avatar_small_hash = ?, avatar_medium_hash = ?," +
+                    " profile_picture = NULL WHERE id = ?", updates);
+            migrated += updates.size();
+            lastId = (Long) updates.get(updates.size() - 1)[3];
+        }
+
+        if (migrated > 0) {
+            logger.info("Migrated {} profile pictures into the blob store", migrated);
+        }
+    }
+
+    private boolean legacyColumnExists(String table, String column) {
+        Boolean exists = jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String name : new String[]{table, table.toUpperCase()}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, name, null)) {
+                    while (columns.next()) {
+                        if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
@@ -0,0 +1,38 @@
+package instagram_clone.util;
+
+/**
+ * Materialized path of a content row: one fixed-width, zero-padded base36
+ * segment per ancestor id, root first. Fixed width keeps lexicographic order
+ * equal to (ancestors, id) order, so a subtree is one contiguous index range.
+ */
+public final class ContentPath {
+    public static final int SEGMENT_WIDTH = 8;
+    public static final int MAX_LENGTH = 400;
+    public static final int MAX_DEPTH = MAX_LENGTH / SEGMENT_WIDTH - 1;
+
+    private static final String PADDING = "0".repeat(SEGMENT_WIDTH);
+
+    private ContentPath() {
+    }
+
+    public static String segment(long id) {
+        String digits = Long.toString(id, 36);
+        if (digits.length() > SEGMENT_WIDTH) {
+            throw new IllegalArgumentException("Id too large for a path segment: " + id);
+        }
+        return PADDING.substring(digits.length()) + digits;
+    }
+
+    public static String child(String parentPath, long id) {
+        return parentPath == null ? segment(id) : parentPath + segment(id);
+    }
+
+    // Exclusive upper bound of the subtree rooted at path: the path its next sibling id would get
+    public static String subtreeEnd(String path, long id) {
+        return child(parent(path), id + 1);
+    }
+
+    public static String parent(String path) {
+        return path.length() > SEGMENT_WIDTH ? path.substring(0, path.length() - SEGMENT_WIDTH) : null;
+    }
+}
@@ -0,0 +1,55 @@
+package instagram_clone.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs blocking I/O that happens while a library holds a monitor (Lucene
+ * segment flushes, commits and reader reopens) on a platform thread when the
+ * caller is a virtual thread, so the monitor pins a pool thread instead of one
+ * of the few carrier threads. Platform-thread callers run the work inline.
+ */
+public final class PlatformThreads {
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            Thread.ofPlatform().daemon().name("pinning-offload-", 0).factory());
+
+    @FunctionalInterface
+    public interface IORunnable {
+        void run() throws IOException;
+    }
+
+    private PlatformThreads() {
+    }
+
+    public static void run(IORunnable task) throws IOException {
+        if (!Thread.currentThread().isVirtual()) {
+            task.run();
+            return;
+        }
+        try {
+            EXECUTOR.submit(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for offloaded I/O");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package instagram_clone;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Inserts plain USER rows straight through JDBC, skipping the password
+ * hashing of UserService, which would otherwise dominate test setup.
+ * Emails are derived from the username.
+ */
+public final class TestUsers {
+    private static final String INSERT = "INSERT INTO users (username, email, password, role, score, banned)" +
+            " VALUES (?, ?, 'password', 'USER', ?, false)";
+
+    private TestUsers() {
+    }
+
+    public static Long create(JdbcTemplate jdbcTemplate, String username) {
+        return create(jdbcTemplate, username, 0);
+    }
+
+    public static Long create(JdbcTemplate jdbcTemplate, String username, double score) {
+        jdbcTemplate.update(INSERT, username, username + "@example.com", score);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, username);
+    }
+
+    /**
+     * Batch-inserts {@code prefix + 0} to {@code prefix + (count - 1)}.
+     *
+     * @return their ids in insertion order; names that merely share the prefix are left out
+     */
+    public static List<Long> createAll(JdbcTemplate jdbcTemplate, String prefix, int count) {
+        jdbcTemplate.batchUpdate(INSERT, IntStream.range(0, count)
+                .mapToObj(i -> new Object[]{prefix + i, prefix + i + "@example.com", 0})
+                .toList());
+        return jdbcTemplate.query("SELECT id, username FROM users WHERE username LIKE ? ORDER BY id",
+                        (rs, rowNum) -> rs.getString(2).substring(prefix.length()).matches("\\d+") ? rs.getLong(1) : null,
+                        prefix + "%")
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+}
@@ -0,0 +1,111 @@
+package instagram_clone.cache;
+
+import instagram_clone.event.ContentVotedEvent;
+import instagram_clone.model.Content;
+import instagram_clone.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EntityCacheTest {
+
+    @Test
+    void servesRepeatedReadsUntilEvicted() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        EntityCache cache = new EntityCache(registry, true, 1 << 20, 600);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("alice", cache.user(1L, id -> {
+                loads.incrementAndGet();
+                return user(id, "alice");
+            }).getUsername());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(2, registry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count());
+
+        cache.evictUser(1L);
+        cache.user(1L, id -> {
+            loads.incrementAndGet();
+            return user(id, "alice2");
+        });
+        assertEquals(2, loads.get());
+
+        // Missing rows are not cached
+        assertNull(cache.user(2L, id -> null));
+        assertEquals("bob", cache.user(2L, id -> user(id, "bob")).getUsername());
+    }
+
+    @Test
+    void bulkReadsLoadOnlyMissesAndVotesEvictContents() {
+        EntityCache cache = new EntityCache(new SimpleMeterRegistry(), true, 1 << 20, 600);
+        AtomicInteger loaded = new AtomicInteger();
+
+        cache.contents(List.of(1L, 2L), ids -> load(ids, loaded));
+        assertEquals(3, cache.contents(List.of(1L, 2L, 3L), ids -> load(ids, loaded)).size());
+        assertEquals(3, loaded.get());
+
+        cache.onContentVoted(new ContentVotedEvent(List.of(2L)));
+        cache.contents(List.of(1L, 2L, 3L), ids -> load(ids, loaded));
+        assertEquals(4, loaded.get());
+    }
+
+    @Test
+    void loadOverlappingAnEvictionIsNotKept() {
+        EntityCache cache = new EntityCache(new SimpleMeterRegistry(), true, 1 << 20, 600);
+
+        // The writer's after-commit eviction lands while a reader is still loading the old row
+        assertEquals("old", cache.user(1L, id -> {
+            cache.evictUser(id);
+            return user(id, "old");
+        }).getUsername());
+        assertEquals("new", cache.user(1L, id -> user(id, "new")).getUsername());
+
+        cache.contents(List.of(1L, 2L), ids -> {
+            cache.onContentVoted(new ContentVotedEvent(List.of(2L)));
+            return load(ids, new AtomicInteger());
+        });
+        AtomicInteger reloaded = new AtomicInteger();
+        cache.contents(List.of(1L, 2L), ids -> load(ids, reloaded));
+        assertEquals(1, reloaded.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysLoads() {
+        EntityCache cache = new EntityCache(new SimpleMeterRegistry(), false, 1 << 20, 600);
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.user(1L, id -> {
+                loads.incrementAndGet();
+                return user(id, "alice");
+            });
+        }
+        assertEquals(3, loads.get());
+    }
+
+    private static Map<Long, Content> load(Set<Long> ids, AtomicInteger loaded) {
+        loaded.addAndGet(ids.size());
+        return ids.stream().collect(Collectors.toMap(id -> id, id -> {
+            Content content = new Content();
+            content.setId(id);
+            content.setTitle("post " + id);
+            return content;
+        }));
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,109 @@
+package instagram_clone.config;
+
+import instagram_clone.TestUsers;
+import instagram_clone.model.UserRole;
+import instagram_clone.security.SessionTokenService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many concurrent HTTP clients alternating feed reads and votes; the subclasses
+ * run it on platform and on virtual request threads. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+abstract class ThreadModeLoadBenchmark {
+    private static final int CLIENTS = 400;
+    private static final int REQUESTS_PER_CLIENT = 50;
+    private static final int POSTS = REQUESTS_PER_CLIENT / 2;
+
+    @LocalServerPort
+    private int port;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Test
+    void feedReadsAndVotes() throws Exception {
+        String prefix = virtualThreads ? "virtual" : "platform";
+        Long author = TestUsers.create(jdbcTemplate, prefix + "-author");
+        List<Long> posts = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            jdbcTemplate.update("INSERT INTO contents (author_id, type, title, text, date_time, status, is_commentable)" +
+                    " VALUES (?, 'POST', 'load', 'load', CURRENT_TIMESTAMP, 'JUST_POSTED', true)", author);
+            posts.add(jdbcTemplate.queryForObject("SELECT MAX(id) FROM contents", Long.class));
+        }
+        List<Long> voters = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            voters.add(TestUsers.create(jdbcTemplate, prefix + "-voter" + i));
+        }
+
+        List<Long> feedNanos = Collections.synchronizedList(new ArrayList<>());
+        List<Long> voteNanos = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+        String base = "http://localhost:" + port;
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().executor(clients).build()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                String authorization = "Bearer " + sessionTokenService.issue(voters.get(c), UserRole.USER).token();
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        HttpRequest request = i % 2 == 0
+                                ? HttpRequest.newBuilder(URI.create(base + "/contents/posts?limit=20&imageSize=SMALL")).GET().build()
+                                : HttpRequest.newBuilder(URI.create(base + "/contents/" + posts.get(i / 2) + "/vote?voteType=UPVOTE"))
+                                        .header("Authorization", authorization).POST(HttpRequest.BodyPublishers.noBody()).build();
+                        long sent = System.nanoTime();
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        (i % 2 == 0 ? feedNanos : voteNanos).add(System.nanoTime() - sent);
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s threads: %.0f req/s overall; feed %s; vote %s%n", prefix,
+                CLIENTS * REQUESTS_PER_CLIENT / seconds, percentiles(feedNanos), percentiles(voteNanos));
+        assertEquals(0, errors.get());
+    }
+
+    private static String percentiles(List<Long> nanos) {
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        return String.format("p50 %.1f ms, p99 %.1f ms", sorted.get(sorted.size() / 2) / 1e6,
+                sorted.get((int) (sorted.size() * 0.99)) / 1e6);
+    }
+}
@@ -0,0 +1,7 @@
+package instagram_clone.config;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadLoadBenchmarkTest extends ThreadModeLoadBenchmark {
+}
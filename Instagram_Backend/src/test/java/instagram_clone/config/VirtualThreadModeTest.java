@@ -0,0 +1,129 @@
+package instagram_clone.config;
+
+import instagram_clone.TestUsers;
+import com.zaxxer.hikari.HikariDataSource;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.VoteType;
+import instagram_clone.service.ContentService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"spring.threads.virtual.enabled=true", "spring.datasource.hikari.maximum-pool-size=4"})
+@ActiveProfiles("h2")
+class VirtualThreadModeTest {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void connectionCheckoutsQueueInFrontOfThePool() throws Exception {
+        assertTrue(dataSource.isWrapperFor(ConnectionLimitingDataSource.class));
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        AtomicInteger maxPoolWaiters = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                        maxPoolWaiters.accumulateAndGet(hikari.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max);
+                        connection.createStatement().execute("SELECT 1");
+                        Thread.sleep(5);
+                        held.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertTrue(maxHeld.get() <= 4, "held " + maxHeld.get());
+        assertEquals(0, maxPoolWaiters.get());
+        assertEquals(4, dataSource.unwrap(ConnectionLimitingDataSource.class).availablePermits());
+    }
+
+    // With few carriers, a thread pinned while waiting for a connection can starve the threads holding them
+    @Test
+    void requestPathsDoNotPinCarrierThreads() throws Exception {
+        Long author = TestUsers.create(jdbcTemplate, "pinning-author");
+        Long voter = TestUsers.create(jdbcTemplate, "pinning-voter");
+
+        List<String> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.add(describe(event)));
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    futures.add(executor.submit(() -> {
+                        ContentDTO post = contentService.create(post(author));
+                        contentService.addVote(post.getId(), voter, VoteType.UPVOTE);
+                        contentService.findPostsPage(20, null, ImageSize.SMALL);
+                        contentService.findById(post.getId(), ImageSize.SMALL);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            // Lets the stream deliver events still buffered in the recording
+            Thread.sleep(500);
+        }
+
+        assertTrue(pinned.isEmpty(), String.join("\n", pinned));
+    }
+
+    private static String describe(RecordedEvent event) {
+        StringBuilder description = new StringBuilder("pinned for " + event.getDuration().toMillis() + " ms:");
+        if (event.getStackTrace() != null) {
+            event.getStackTrace().getFrames().stream().limit(25).forEach(frame -> description.append("\n  ")
+                    .append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName()));
+        }
+        return description.toString();
+    }
+
+    private static ContentCreateDTO post(Long authorId) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle("virtual");
+        content.setText("virtual thread post");
+        content.setContentType(ContentType.POST);
+        content.setAuthorId(authorId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return content;
+    }
+}
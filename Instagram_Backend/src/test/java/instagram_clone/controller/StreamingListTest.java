@@ -0,0 +1,145 @@
+package instagram_clone.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import instagram_clone.TestUsers;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "instagram_clone.controller.StreamingListTest$RecordingInspector")
+@ActiveProfiles("h2")
+class StreamingListTest {
+    private static final Pattern LAZY_LOAD = Pattern.compile("\\bfrom (users|contents)\\b");
+
+    @Autowired
+    private VoteController voteController;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+
+    @Test
+    void votesAreWrittenWhileStreamingWithABoundedPersistenceContext() throws Exception {
+        seed("stream", 200, 100);
+        long votes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM votes", Long.class);
+
+        RecordingOutputStream out = new RecordingOutputStream(false);
+        RecordingInspector.statements.clear();
+        voteController.getAllVotes().getBody().writeTo(out);
+        List<String> statements = List.copyOf(RecordingInspector.statements);
+
+        JsonNode body = objectMapper.readTree(out.bytes.toByteArray());
+        assertEquals(votes, body.size());
+        assertTrue(body.get(0).hasNonNull("username"));
+        // Bytes left before the last row was read, and loaded votes, voters and contents never piled up
+        assertTrue(out.writesWhileReading > 10, "writes while reading: " + out.writesWhileReading);
+        assertTrue(out.maxManagedEntities < 2000, "managed entities: " + out.maxManagedEntities);
+        // Voters and contents come with their votes, in every batch
+        assertTrue(statements.stream().noneMatch(sql -> LAZY_LOAD.matcher(sql).find()), String.join("\n", statements));
+    }
+
+    /**
+     * Heap retained while streaming 200k votes (about 30 MB of JSON), sampled after
+     * periodic full collections. Growth is measured from the first sample because the
+     * embedded H2 holds the whole result set in this JVM, unlike a remote MySQL.
+     * Run with {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void heapStaysFlatForLargeTables() throws Exception {
+        seed("stream-heap", 1000, 200);
+
+        RecordingOutputStream out = new RecordingOutputStream(true);
+        voteController.getAllVotes().getBody().writeTo(OutputStream.nullOutputStream());
+        voteController.getAllVotes().getBody().writeTo(out);
+
+        long growth = out.maxUsedHeap - out.firstUsedHeap;
+        System.out.printf("streamed %d bytes, peak retained heap growth %d MB%n", out.total, growth >> 20);
+        assertTrue(growth < 16L << 20, "heap growth: " + (growth >> 20) + " MB");
+    }
+
+    private void seed(String prefix, int users, int posts) {
+        Long author = TestUsers.createAll(jdbcTemplate, prefix, users).get(0);
+        for (int i = 0; i < posts; i++) {
+            jdbcTemplate.update("INSERT INTO contents (author_id, type, title, text, date_time, status, is_commentable)" +
+                    " VALUES (?, 'POST', ?, 'streamed', CURRENT_TIMESTAMP, 'JUST_POSTED', true)", author, prefix);
+        }
+        jdbcTemplate.update("INSERT INTO votes (user_id, content_id, type, date_time)" +
+                " SELECT u.id, c.id, 'UPVOTE', CURRENT_TIMESTAMP FROM users u CROSS JOIN contents c" +
+                " WHERE u.username LIKE ? AND c.title = ?", prefix + "%", prefix);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private class RecordingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final boolean sampleHeap;
+        private long total;
+        private int writes;
+        private int writesWhileReading;
+        private int maxManagedEntities;
+        private long firstUsedHeap;
+        private long maxUsedHeap;
+
+        RecordingOutputStream(boolean sampleHeap) {
+            this.sampleHeap = sampleHeap;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            total += len;
+            if (!sampleHeap) {
+                bytes.write(b, off, len);
+            } else if (++writes % 200 == 0) {
+                System.gc();
+                long used = usedHeap();
+                firstUsedHeap = firstUsedHeap == 0 ? used : firstUsedHeap;
+                maxUsedHeap = Math.max(maxUsedHeap, used);
+            }
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                writesWhileReading++;
+                maxManagedEntities = Math.max(maxManagedEntities,
+                        entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+            }
+        }
+    }
+}
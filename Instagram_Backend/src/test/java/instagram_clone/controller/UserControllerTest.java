@@ -1,24 +1,39 @@
 package instagram_clone.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import instagram_clone.dto.ScoreAdjustmentDTO;
 import instagram_clone.dto.UserCreateDTO;
 import instagram_clone.dto.UserDTO;
+import instagram_clone.model.AvatarSize;
 import instagram_clone.model.UserRole;
+import instagram_clone.security.SessionTokenService;
 import instagram_clone.service.UserService;
+import instagram_clone.storage.BlobStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -27,10 +42,16 @@ class UserControllerTest {
 
     @Mock
     private UserService userService;
+    @Mock
+    private BlobStore blobStore;
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
     @InjectMocks
     private UserController userController;
     private UserDTO testUser;
     private UserCreateDTO testUserCreate;
+    private final SessionTokenService.Session session =
+            new SessionTokenService.Session(1L, UserRole.USER, 0, Long.MAX_VALUE, "token");
 
     @BeforeEach()
     void setup() {
@@ -72,35 +93,102 @@ class UserControllerTest {
     }
 
     @Test
-    void getAllUsers() {
-        List<UserDTO> users = Collections.singletonList(testUser);
-        when(userService.findAll()).thenReturn(users);
+    void getAllUsers() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserDTO> action = invocation.getArgument(0);
+            action.accept(testUser);
+            return null;
+        }).when(userService).streamAll(any());
 
-        ResponseEntity<List<UserDTO>> response = userController.getAllUsers();
+        ResponseEntity<StreamingResponseBody> response = userController.getAllUsers();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(1, response.getBody().size());
-        verify(userService).findAll();
+        UserDTO[] users = objectMapper.readValue(body.toByteArray(), UserDTO[].class);
+        assertEquals(1, users.length);
+        assertEquals("testUser", users[0].getUsername());
+        verify(userService).streamAll(any());
     }
 
     @Test
     void updateUser() {
-        when(userService.update(anyLong(), any(UserDTO.class))).thenReturn(testUser);
+        when(userService.update(anyLong(), any(UserDTO.class), anyBoolean())).thenReturn(testUser);
 
-        ResponseEntity<UserDTO> response = userController.updateUser(1L, testUser);
+        ResponseEntity<UserDTO> response = userController.updateUser(1L, testUser, session);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(testUser, response.getBody());
-        verify(userService).update(1L, testUser);
+        verify(userService).update(1L, testUser, false);
+    }
+
+    @Test
+    void updateOtherUserIsForbiddenUnlessAdmin() {
+        ResponseEntity<UserDTO> response = userController.updateUser(2L, testUser, session);
+
+        assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+        verifyNoInteractions(userService);
+
+        SessionTokenService.Session admin = new SessionTokenService.Session(3L, UserRole.ADMIN, 0, Long.MAX_VALUE, "admin");
+        when(userService.update(2L, testUser, true)).thenReturn(testUser);
+        assertEquals(HttpStatus.OK, userController.updateUser(2L, testUser, admin).getStatusCode());
+    }
+
+    @Test
+    void adjustScore() {
+        ScoreAdjustmentDTO adjustment = new ScoreAdjustmentDTO();
+        adjustment.setDelta(-2.5);
+        when(userService.adjustScore(1L, -2.5)).thenReturn(testUser);
+
+        ResponseEntity<UserDTO> response = userController.adjustScore(1L, adjustment);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(testUser, response.getBody());
+        verify(userService).adjustScore(1L, -2.5);
+    }
+
+    @Test
+    void adjustScoreWithoutDeltaIsBadRequest() {
+        ResponseEntity<UserDTO> response = userController.adjustScore(1L, new ScoreAdjustmentDTO());
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(userService);
     }
 
     @Test
     void deleteUser() {
         doNothing().when(userService).deleteById(1L);
 
-        ResponseEntity<Void> response = userController.deleteUser(1L);
+        ResponseEntity<Void> response = userController.deleteUser(1L, session);
 
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(userService).deleteById(1L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAvatarCachesCurrentVersionAndRevalidates(@TempDir Path dir) throws Exception {
+        String hash = "a".repeat(64);
+        Path image = Files.write(dir.resolve(hash), new byte[]{1, 2, 3});
+        when(userService.findAvatar(1L, AvatarSize.SMALL)).thenReturn(new UserService.Avatar(hash, "aaaa"));
+        when(blobStore.find(hash)).thenReturn(Optional.of(image));
+
+        ResponseEntity<StreamingResponseBody> current = userController.getAvatar(1L, AvatarSize.SMALL, "aaaa", null);
+        assertEquals(HttpStatus.OK, current.getStatusCode());
+        assertEquals("\"" + hash + "\"", current.getHeaders().getETag());
+        assertTrue(current.getHeaders().getCacheControl().contains("immutable"));
+
+        ResponseEntity<StreamingResponseBody> stale = userController.getAvatar(1L, AvatarSize.SMALL, "bbbb", null);
+        assertEquals("no-cache, public", stale.getHeaders().getCacheControl());
+
+        ResponseEntity<StreamingResponseBody> unchanged = userController.getAvatar(1L, AvatarSize.SMALL, null, "\"" + hash + "\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertNull(unchanged.getBody());
+    }
+
+    @Test
+    void getAvatarWithoutPictureIsNotFound() throws Exception {
+        when(userService.findAvatar(1L, AvatarSize.FULL)).thenReturn(null);
+
+        assertEquals(HttpStatus.NOT_FOUND, userController.getAvatar(1L, AvatarSize.FULL, null, null).getStatusCode());
+    }
+}
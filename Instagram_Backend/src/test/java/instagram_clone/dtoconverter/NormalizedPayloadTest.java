@@ -0,0 +1,133 @@
+package instagram_clone.dtoconverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.NormalizedPageDTO;
+import instagram_clone.dto.UserCreateDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.UserRole;
+import instagram_clone.repository.ContentRepository;
+import instagram_clone.service.ContentService;
+import instagram_clone.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class NormalizedPayloadTest {
+    private static final int COMMENTS = 50;
+    private static final int AUTHORS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper mapper;
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ContentRepository contentRepository;
+    @Autowired
+    private ContentDTOAssembler contentDTOAssembler;
+
+    @Test
+    void commentPageListsEachAuthorOnceAndIsSmaller() throws Exception {
+        Long postId = post("payload");
+
+        String full = body("/contents/comments/parent/" + postId + "?imageSize=SMALL");
+        String normalized = body("/contents/comments/parent/" + postId + "?imageSize=SMALL&format=normalized");
+        NormalizedPageDTO page = mapper.readValue(normalized, NormalizedPageDTO.class);
+
+        assertEquals(COMMENTS, page.getItems().size());
+        assertEquals(AUTHORS, page.getAuthors().size());
+        assertEquals(postId, page.getItems().get(0).getParentId());
+        page.getItems().forEach(item -> assertTrue(page.getAuthors().containsKey(item.getAuthorId())));
+        assertTrue(full.contains("@example.com"));
+        assertFalse(normalized.contains("@example.com"));
+        assertTrue(normalized.length() * 3 < full.length() * 2, normalized.length() + " vs " + full.length());
+    }
+
+    /**
+     * Assembly and serialization time of one cached comment page in each format.
+     * Run with {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void serializationTime() throws Exception {
+        List<Long> ids = contentRepository.findIdsByParentId(post("benchmark"));
+        for (int round = 0; round < 3; round++) {
+            long fullBytes = 0;
+            long normalizedBytes = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                fullBytes += mapper.writeValueAsBytes(contentDTOAssembler.assemble(ids, ImageSize.SMALL)).length;
+            }
+            long fullNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                normalizedBytes += mapper.writeValueAsBytes(
+                        contentDTOAssembler.assembleNormalized(ids, ImageSize.SMALL, null)).length;
+            }
+            long normalizedNanos = System.nanoTime() - start;
+            System.out.printf("full: %d ms, %d bytes/page; normalized: %d ms, %d bytes/page%n",
+                    fullNanos / 1_000_000, fullBytes / 10_000, normalizedNanos / 1_000_000, normalizedBytes / 10_000);
+        }
+    }
+
+    private String body(String uri) throws Exception {
+        return mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    // A post with a long title and body, which the full format repeats inside every comment
+    private Long post(String prefix) {
+        List<Long> authors = new ArrayList<>();
+        for (int i = 1; i <= AUTHORS; i++) {
+            UserCreateDTO user = new UserCreateDTO();
+            user.setUsername(prefix + "-commenter" + i);
+            user.setEmail(prefix + "-commenter" + i + "@example.com");
+            user.setPassword("password");
+            user.setRole(UserRole.USER);
+            user.setBanned(false);
+            authors.add(userService.create(user).getId());
+        }
+        Long postId = contentService.create(content(authors.get(0), null, ContentType.POST,
+                "A post with a reasonably long title")).getId();
+        for (int i = 0; i < COMMENTS; i++) {
+            contentService.create(content(authors.get(i % AUTHORS), postId, ContentType.COMMENT, "comment " + i));
+        }
+        return postId;
+    }
+
+    private static ContentCreateDTO content(Long authorId, Long parentId, ContentType type, String title) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle(title);
+        content.setText(type == ContentType.POST
+                ? "The post body, which the full format repeats inside every comment."
+                : title);
+        content.setContentType(type);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return content;
+    }
+}
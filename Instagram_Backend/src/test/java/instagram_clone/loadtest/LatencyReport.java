@@ -0,0 +1,69 @@
+package instagram_clone.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-endpoint latencies of one load-test run. Latency is taken from a
+ * request's scheduled send time, so a server falling behind the target rate
+ * shows up as queueing delay rather than as fewer, faster samples.
+ */
+class LatencyReport {
+    private final Map<String, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long latencyNanos, boolean error) {
+        latencies.computeIfAbsent(endpoint, key -> Collections.synchronizedList(new ArrayList<>())).add(latencyNanos);
+        AtomicInteger count = errors.computeIfAbsent(endpoint, key -> new AtomicInteger());
+        if (error) {
+            count.incrementAndGet();
+        }
+    }
+
+    int requests() {
+        return latencies.values().stream().mapToInt(List::size).sum();
+    }
+
+    int errors() {
+        return errors.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    double p99Millis() {
+        List<Long> all = new ArrayList<>();
+        latencies.values().forEach(all::addAll);
+        return percentile(sorted(all), 0.99) / 1e6;
+    }
+
+    String format(double seconds) {
+        StringBuilder report = new StringBuilder(String.format("%-28s %8s %7s %9s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+        new TreeMap<>(latencies).forEach((endpoint, samples) -> {
+            List<Long> sorted = sorted(samples);
+            report.append(String.format("%-28s %8d %7d %9.1f %10.1f %10.1f %10.1f%n", endpoint, sorted.size(),
+                    errors.get(endpoint).get(), sorted.size() / seconds, percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.99) / 1e6, sorted.get(sorted.size() - 1) / 1e6));
+        });
+        report.append(String.format("%-28s %8d %7d %9.1f %21.1f%n", "total", requests(), errors(),
+                requests() / seconds, p99Millis()));
+        return report.toString();
+    }
+
+    private static List<Long> sorted(List<Long> samples) {
+        List<Long> sorted;
+        synchronized (samples) {
+            sorted = new ArrayList<>(samples);
+        }
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    // Nearest rank
+    private static long percentile(List<Long> sorted, double quantile) {
+        return sorted.get(Math.max(0, (int) Math.ceil(quantile * sorted.size()) - 1));
+    }
+}
@@ -0,0 +1,222 @@
+package instagram_clone.loadtest;
+
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.UserRole;
+import instagram_clone.security.SessionTokenService;
+import instagram_clone.service.ContentService;
+import instagram_clone.storage.BlobStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the backend on the in-memory MySQL-mode database, seeds it
+ * deterministically and replays a mixed workload open-loop at
+ * {@code loadtest.rate} requests per second, then reports throughput and
+ * p50/p99 per endpoint to stdout and {@code target/loadtest-report.txt}.
+ * Run with {@code mvn test -Ploadtest}; it needs no network or MySQL.
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"h2", "loadtest"})
+class MixedWorkloadLoadTest {
+    private static final String BOUNDARY = "loadtest-boundary";
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private BlobStore blobStore;
+    @Autowired
+    private SessionTokenService sessionTokenService;
+
+    @Value("${loadtest.seed}")
+    private long seed;
+    @Value("${loadtest.users}")
+    private int users;
+    @Value("${loadtest.posts}")
+    private int posts;
+    @Value("${loadtest.tags}")
+    private int tags;
+    @Value("${loadtest.max-comments-per-post}")
+    private int maxCommentsPerPost;
+    @Value("${loadtest.rate}")
+    private int rate;
+    @Value("${loadtest.warmup-seconds}")
+    private int warmupSeconds;
+    @Value("${loadtest.duration-seconds}")
+    private int durationSeconds;
+    @Value("${loadtest.mix.feed}")
+    private int feedWeight;
+    @Value("${loadtest.mix.post-detail}")
+    private int postDetailWeight;
+    @Value("${loadtest.mix.thread}")
+    private int threadWeight;
+    @Value("${loadtest.mix.vote}")
+    private int voteWeight;
+    @Value("${loadtest.mix.create-post}")
+    private int createPostWeight;
+    @Value("${loadtest.max-error-rate}")
+    private double maxErrorRate;
+    @Value("${loadtest.max-p99-ms}")
+    private double maxP99Ms;
+
+    private record Step(String endpoint, HttpRequest request) {
+    }
+
+    @Test
+    void mixedWorkloadAtTargetRate() throws Exception {
+        long seedStart = System.nanoTime();
+        WorkloadSeeder seeder = new WorkloadSeeder(jdbcTemplate, contentService, blobStore, seed);
+        WorkloadSeeder.Dataset dataset = seeder.seed(users, posts, tags, maxCommentsPerPost);
+        System.out.printf("Seeded %d users and %d posts in %.1f s%n", dataset.users().size(), dataset.posts().size(),
+                (System.nanoTime() - seedStart) / 1e9);
+
+        // Planned up front from the seed, so every run replays the same request sequence
+        Random random = new Random(seed + 1);
+        replay(plan(warmupSeconds * rate, dataset, seeder, random), new LatencyReport());
+        LatencyReport report = new LatencyReport();
+        double seconds = replay(plan(durationSeconds * rate, dataset, seeder, random), report);
+
+        String summary = String.format("Target %d req/s for %d s, achieved %.1f req/s%n%s",
+                rate, durationSeconds, report.requests() / seconds, report.format(seconds));
+        System.out.print(summary);
+        Files.writeString(Path.of("target", "loadtest-report.txt"), summary);
+
+        assertTrue(report.errors() <= maxErrorRate * report.requests(), report.errors() + " failed requests");
+        if (maxP99Ms > 0) {
+            assertTrue(report.p99Millis() <= maxP99Ms, "p99 " + report.p99Millis() + " ms");
+        }
+    }
+
+    private List<Step> plan(int count, WorkloadSeeder.Dataset dataset, WorkloadSeeder seeder, Random random) {
+        String base = "http://localhost:" + port;
+        int totalWeight = feedWeight + postDetailWeight + threadWeight + voteWeight + createPostWeight;
+        List<Step> steps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int pick = random.nextInt(totalWeight);
+            Long post = popularPost(dataset.posts(), random);
+            if ((pick -= feedWeight) < 0) {
+                steps.add(get("GET /contents/posts", base + "/contents/posts?limit=20&imageSize=SMALL"));
+            } else if ((pick -= postDetailWeight) < 0) {
+                steps.add(get("GET /contents/get/{id}", base + "/contents/get/" + post + "?imageSize=MEDIUM"));
+            } else if ((pick -= threadWeight) < 0) {
+                steps.add(get("GET /contents/{id}/thread", base + "/contents/" + post + "/thread?limit=20"));
+            } else if ((pick -= voteWeight) < 0) {
+                Long voter = dataset.users().get(random.nextInt(dataset.users().size()));
+                if (voter.equals(dataset.authors().get(post))) {
+                    voter = dataset.users().get((dataset.users().indexOf(voter) + 1) % dataset.users().size());
+                }
+                String voteType = random.nextInt(5) == 0 ? "DOWN_VOTE" : "UPVOTE";
+                steps.add(new Step("POST /contents/{id}/vote", HttpRequest.newBuilder(URI.create(
+                                base + "/contents/" + post + "/vote?voteType=" + voteType))
+                        .header("Authorization", bearer(voter))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build()));
+            } else {
+                Long author = dataset.users().get(random.nextInt(dataset.users().size()));
+                steps.add(createPost(base, author, seeder, random));
+            }
+        }
+        return steps;
+    }
+
+    // Skewed towards the newest posts, which is where feed traffic lands
+    private static Long popularPost(List<Long> posts, Random random) {
+        double r = random.nextDouble();
+        return posts.get(posts.size() - 1 - (int) (posts.size() * r * r));
+    }
+
+    private Step createPost(String base, Long author, WorkloadSeeder seeder, Random random) {
+        ContentCreateDTO post = seeder.content(author, null, ContentType.POST);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        field(body, "title", post.getTitle());
+        field(body, "text", post.getText());
+        field(body, "type", "POST");
+        field(body, "isCommentable", "true");
+        field(body, "tags", seeder.tags(tags));
+        body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"image\"; filename=\"photo.png\""
+                + "\r\nContent-Type: image/png\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(WorkloadSeeder.png(random));
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return new Step("POST /contents/create", HttpRequest.newBuilder(URI.create(base + "/contents/create"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .header("Authorization", bearer(author))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build());
+    }
+
+    // Issued while planning, so signing stays out of the measured requests
+    private String bearer(Long userId) {
+        return "Bearer " + sessionTokenService.issue(userId, UserRole.USER).token();
+    }
+
+    private static void field(ByteArrayOutputStream body, String name, String value) {
+        body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Step get(String endpoint, String uri) {
+        return new Step(endpoint, HttpRequest.newBuilder(URI.create(uri)).GET().build());
+    }
+
+    /**
+     * Starts each step at its slot on a fixed schedule, whether or not earlier
+     * responses have arrived, and waits for all of them.
+     *
+     * @return seconds from the first slot until the last response
+     */
+    private double replay(List<Step> steps, LatencyReport report) {
+        long intervalNanos = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        // Declared first so it is closed last, after every queued request has been sent
+        try (HttpClient http = HttpClient.newHttpClient();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < steps.size(); i++) {
+                long due = start + i * intervalNanos;
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                Step step = steps.get(i);
+                clients.submit(() -> {
+                    boolean error;
+                    try {
+                        error = http.send(step.request(), HttpResponse.BodyHandlers.discarding()).statusCode() >= 400;
+                    } catch (IOException e) {
+                        error = true;
+                    }
+                    report.record(step.endpoint(), System.nanoTime() - due, error);
+                    return null;
+                });
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+}
@@ -0,0 +1,129 @@
+package instagram_clone.loadtest;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.service.ContentService;
+import instagram_clone.storage.BlobStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic data set for the load test: one seed always yields the same
+ * users, posts, tags and comment trees. Users are batch-inserted; contents go
+ * through ContentService so paths, tags and the search index are built as in
+ * production.
+ */
+class WorkloadSeeder {
+    private static final int MAX_REPLY_DEPTH = 4;
+    private static final String[] WORDS = {"sunset", "harbour", "coffee", "city", "morning", "mountain", "street",
+            "friends", "weekend", "light", "rain", "garden", "train", "market", "river", "night"};
+
+    record Dataset(List<Long> users, List<Long> posts, Map<Long, Long> authors) {
+    }
+
+    private record Node(Long id, int depth) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentService contentService;
+    private final BlobStore blobStore;
+    private final Random random;
+
+    WorkloadSeeder(JdbcTemplate jdbcTemplate, ContentService contentService, BlobStore blobStore, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.contentService = contentService;
+        this.blobStore = blobStore;
+        this.random = new Random(seed);
+    }
+
+    Dataset seed(int userCount, int postCount, int tagCount, int maxCommentsPerPost) {
+        List<Long> users = TestUsers.createAll(jdbcTemplate, "load-user-", userCount);
+
+        List<Long> posts = new ArrayList<>();
+        Map<Long, Long> authors = new HashMap<>();
+        for (int p = 0; p < postCount; p++) {
+            Long author = users.get(random.nextInt(users.size()));
+            ContentCreateDTO post = content(author, null, ContentType.POST);
+            post.setTags(tags(tagCount));
+            // Every third post carries an image, so feeds mix rendition URLs and text-only items
+            if (p % 3 == 0) {
+                post.setImageHash(blobStore.put(png(random)));
+            }
+            Long postId = contentService.create(post).getId();
+            posts.add(postId);
+            authors.put(postId, author);
+
+            Node root = new Node(postId, 0);
+            List<Node> comments = new ArrayList<>();
+            int commentCount = random.nextInt(maxCommentsPerPost + 1);
+            for (int c = 0; c < commentCount; c++) {
+                Node parent = comments.isEmpty() || random.nextBoolean() ? root : comments.get(random.nextInt(comments.size()));
+                if (parent.depth() >= MAX_REPLY_DEPTH) {
+                    parent = root;
+                }
+                Long commentId = contentService.create(
+                        content(users.get(random.nextInt(users.size())), parent.id(), ContentType.COMMENT)).getId();
+                comments.add(new Node(commentId, parent.depth() + 1));
+            }
+        }
+        return new Dataset(users, posts, authors);
+    }
+
+    ContentCreateDTO content(Long authorId, Long parentId, ContentType type) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle(words(3));
+        content.setText(words(12 + random.nextInt(30)));
+        content.setContentType(type);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return content;
+    }
+
+    String tags(int tagCount) {
+        return random.ints(random.nextInt(6), 0, tagCount)
+                .distinct()
+                .mapToObj(i -> "\"tag" + i + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private String words(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> WORDS[random.nextInt(WORDS.length)])
+                .collect(Collectors.joining(" "));
+    }
+
+    // A photo-sized PNG of random blocks, distinct per call so every upload gets its own renditions
+    static byte[] png(Random random) {
+        BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int i = 0; i < 40; i++) {
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillRect(random.nextInt(640), random.nextInt(480), 20 + random.nextInt(200), 20 + random.nextInt(200));
+        }
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package instagram_clone.repository;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.model.VoteType;
+import instagram_clone.service.ContentService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "instagram_clone.repository.ContentFetchPlanTest$RecordingInspector")
+@ActiveProfiles("h2")
+class ContentFetchPlanTest {
+    private static final Pattern BLOB_COLUMN = Pattern.compile("\\b(profile_picture|image)\\b");
+
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql.toLowerCase(Locale.ROOT));
+            return sql;
+        }
+    }
+
+    @Test
+    void feedVoteAndDetailQueriesNeverTouchBlobsOrJoinAuthors() {
+        // An upgraded database still has the legacy blob columns
+        jdbcTemplate.execute("ALTER TABLE users ADD COLUMN IF NOT EXISTS profile_picture BLOB");
+        jdbcTemplate.execute("ALTER TABLE contents ADD COLUMN IF NOT EXISTS image BLOB");
+        Long author = TestUsers.create(jdbcTemplate, "plan-author");
+        Long voter = TestUsers.create(jdbcTemplate, "plan-voter");
+        jdbcTemplate.update("UPDATE users SET profile_picture = ? WHERE id = ?", new byte[64 * 1024], author);
+        ContentDTO post = create(author, null, ContentType.POST);
+        ContentDTO comment = create(voter, post.getId(), ContentType.COMMENT);
+
+        RecordingInspector.statements.clear();
+        contentService.findPostsPage(10, null, ImageSize.SMALL);
+        contentService.findById(comment.getId(), ImageSize.SMALL);
+        contentService.addVote(post.getId(), voter, VoteType.UPVOTE);
+        List<String> statements = List.copyOf(RecordingInspector.statements);
+
+        assertFalse(statements.isEmpty());
+        for (String sql : statements) {
+            assertFalse(BLOB_COLUMN.matcher(sql).find(), sql);
+            assertFalse(sql.contains(" from contents") && sql.contains("join users"), sql);
+        }
+
+        // A second page view is served from the entity cache apart from the keyset query
+        RecordingInspector.statements.clear();
+        List<ContentDTO> page = contentService.findPostsPage(10, null, ImageSize.SMALL).getItems();
+        assertEquals("plan-author", page.get(0).getAuthor().getUsername());
+        assertTrue(RecordingInspector.statements.stream().noneMatch(sql -> sql.contains(" from users")),
+                String.join("\n", RecordingInspector.statements));
+    }
+
+    private ContentDTO create(Long authorId, Long parentId, ContentType type) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle("plan");
+        content.setText("plan text");
+        content.setContentType(type);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return contentService.create(content);
+    }
+}
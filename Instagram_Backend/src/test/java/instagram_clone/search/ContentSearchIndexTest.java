@@ -0,0 +1,82 @@
+package instagram_clone.search;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.ContentUpdateDTO;
+import instagram_clone.dto.CursorPageDTO;
+import instagram_clone.dto.SearchHitDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.service.ContentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ContentSearchIndexTest {
+
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private ContentSearchIndex searchIndex;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ranksHighlightsAndPagesPosts() throws Exception {
+        Long authorId = TestUsers.create(jdbcTemplate, "search-author");
+
+        ContentDTO inTitle = create(authorId, null, "Zanzibar sunsets", "beach evening");
+        ContentDTO inText = create(authorId, null, "Holiday", "we watched a zanzibar sunset from the boat");
+        ContentDTO other = create(authorId, null, "Zanzibar markets", "spices");
+        create(authorId, inTitle.getId(), "zanzibar comment", "zanzibar sunsets");
+        searchIndex.refresh();
+
+        CursorPageDTO<SearchHitDTO> page = contentService.search("zanzibar sunsets", 1, null, ImageSize.SMALL);
+        assertEquals(List.of(inTitle.getId()), ids(page));
+        assertTrue(page.getItems().get(0).getTitleHighlight().contains("<b>Zanzibar</b> <b>sunsets</b>"));
+        CursorPageDTO<SearchHitDTO> next = contentService.search("zanzibar sunsets", 1, page.getNextCursor(), ImageSize.SMALL);
+        assertEquals(List.of(inText.getId()), ids(next));
+        assertNull(next.getNextCursor());
+
+        ContentUpdateDTO update = new ContentUpdateDTO();
+        update.setTitle("Zanzibar markets at sunset");
+        update.setText("spices");
+        contentService.update(other.getId(), update);
+        contentService.deleteById(inText.getId());
+        searchIndex.refresh();
+        assertEquals(List.of(inTitle.getId(), other.getId()),
+                ids(contentService.search("zanzibar sunset", 10, null, ImageSize.SMALL)));
+
+        searchIndex.reindex();
+        assertEquals(List.of(inTitle.getId(), other.getId()),
+                ids(contentService.search("zanzibar sunset", 10, null, ImageSize.SMALL)));
+        assertEquals(List.of(), ids(contentService.search("boat", 10, null, ImageSize.SMALL)));
+    }
+
+    private ContentDTO create(Long authorId, Long parentId, String title, String text) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle(title);
+        content.setText(text);
+        content.setContentType(parentId == null ? ContentType.POST : ContentType.COMMENT);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return contentService.create(content);
+    }
+
+    private static List<Long> ids(CursorPageDTO<SearchHitDTO> page) {
+        return page.getItems().stream().map(hit -> hit.getContent().getId()).toList();
+    }
+}
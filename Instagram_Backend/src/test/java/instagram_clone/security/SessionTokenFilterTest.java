@@ -0,0 +1,119 @@
+package instagram_clone.security;
+
+import instagram_clone.dto.UserCreateDTO;
+import instagram_clone.dto.UserDTO;
+import instagram_clone.model.UserRole;
+import instagram_clone.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class SessionTokenFilterTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private SessionTokenService sessionTokenService;
+    @Autowired
+    private TokenRevocations tokenRevocations;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void revocationsFromOtherInstancesApplyAfterRefresh() throws Exception {
+        Long id = createUser("revoke-target");
+        String token = userService.login("revoke-target", "password").getAccessToken();
+        SessionTokenFilter filter = new SessionTokenFilter(sessionTokenService);
+        assertNotNull(authenticate(filter, token));
+
+        // Written by another instance: requests here never read the table, only the refresh does
+        jdbcTemplate.update("INSERT INTO user_token_revocations (user_id, revoked_before) VALUES (?, ?)",
+                id, System.currentTimeMillis());
+        assertNotNull(authenticate(filter, token));
+
+        tokenRevocations.refresh();
+        assertNull(authenticate(filter, token));
+    }
+
+    @Test
+    void logoutsArePersistedAndAppliedAfterRefresh() throws Exception {
+        createUser("logout-target");
+        String loggedOut = userService.login("logout-target", "password").getAccessToken();
+        String elsewhere = userService.login("logout-target", "password").getAccessToken();
+        SessionTokenFilter filter = new SessionTokenFilter(sessionTokenService);
+
+        String loggedOutId = sessionTokenService.verify(loggedOut).orElseThrow().tokenId();
+        userService.logout(loggedOut);
+        assertNull(authenticate(filter, loggedOut));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM revoked_tokens WHERE token_id = ?", Integer.class, loggedOutId));
+
+        // Logged out on another instance
+        jdbcTemplate.update("INSERT INTO revoked_tokens (token_id, expires_at) VALUES (?, ?)",
+                sessionTokenService.verify(elsewhere).orElseThrow().tokenId(), System.currentTimeMillis() + 60_000);
+        assertNotNull(authenticate(filter, elsewhere));
+        tokenRevocations.refresh();
+        assertNull(authenticate(filter, elsewhere));
+    }
+
+    @Test
+    void onlyModeratingUpdatesBanAndRevoke() throws Exception {
+        Long id = createUser("ban-target");
+        String token = userService.login("ban-target", "password").getAccessToken();
+        SessionTokenFilter filter = new SessionTokenFilter(sessionTokenService);
+        UserDTO edit = userService.findById(id);
+        edit.setRole(UserRole.ADMIN);
+        edit.setBanned(true);
+
+        UserDTO unchanged = userService.update(id, edit, false);
+        assertEquals(UserRole.USER, unchanged.getRole());
+        assertFalse(unchanged.getBanned());
+        assertNotNull(authenticate(filter, token));
+
+        userService.update(id, edit, true);
+        assertNull(authenticate(filter, token));
+        RuntimeException rejected = assertThrows(RuntimeException.class, () -> userService.login("ban-target", "password"));
+        assertEquals("User is banned", rejected.getMessage());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_token_revocations WHERE user_id = ?", Integer.class, id));
+    }
+
+    private Long createUser(String username) {
+        UserCreateDTO user = new UserCreateDTO();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("password");
+        user.setRole(UserRole.USER);
+        user.setBanned(false);
+        return userService.create(user).getId();
+    }
+
+    private static Object authenticate(SessionTokenFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
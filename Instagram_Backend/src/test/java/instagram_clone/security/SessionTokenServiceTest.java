@@ -0,0 +1,105 @@
+package instagram_clone.security;
+
+import instagram_clone.model.UserRole;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionTokenServiceTest {
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    @Test
+    void verifiesOwnTokensAndRejectsForgedOrExpiredOnes() {
+        SessionTokenService service = new SessionTokenService(SECRET, 3600, 100);
+        String token = service.issue(7L, UserRole.MODERATOR).token();
+
+        SessionTokenService.Session session = service.verify(token).orElseThrow();
+        assertEquals(7L, session.userId());
+        assertEquals(UserRole.MODERATOR, session.role());
+        // Cached on first use, still answered the same
+        assertEquals(session, service.verify(token).orElseThrow());
+
+        assertFalse(service.verify(token.replaceFirst("^7:", "8:")).isPresent());
+        assertFalse(service.verify(token.replace(":MODERATOR:", ":ADMIN:")).isPresent());
+        assertFalse(service.verify(token + "x").isPresent());
+        assertFalse(service.verify("garbage").isPresent());
+        assertFalse(new SessionTokenService("another secret, another key......", 3600, 100).verify(token).isPresent());
+
+        SessionTokenService expiring = new SessionTokenService(SECRET, 0, 100);
+        assertFalse(expiring.verify(expiring.issue(7L, UserRole.USER).token()).isPresent());
+    }
+
+    @Test
+    void revokedTokensAndUsersAreRejected() throws InterruptedException {
+        SessionTokenService service = new SessionTokenService(SECRET, 3600, 100);
+        String first = service.issue(1L, UserRole.USER).token();
+        String second = service.issue(1L, UserRole.USER).token();
+        String other = service.issue(2L, UserRole.USER).token();
+
+        service.revoke(first);
+        assertFalse(service.verify(first).isPresent());
+        assertTrue(service.verify(second).isPresent());
+
+        service.revokeUser(1L);
+        assertFalse(service.verify(second).isPresent());
+        assertTrue(service.verify(other).isPresent());
+        Thread.sleep(2);
+        assertTrue(service.verify(service.issue(1L, UserRole.USER).token()).isPresent());
+
+        service.pruneRevocations();
+        assertFalse(service.verify(first).isPresent());
+    }
+
+    @Test
+    void userRevocationsOnlyMoveForward() {
+        SessionTokenService service = new SessionTokenService(SECRET, 3600, 100);
+        String token = service.issue(1L, UserRole.USER).token();
+        long issuedAt = service.verify(token).orElseThrow().issuedAt();
+
+        service.revokeUser(1L, issuedAt);
+        assertFalse(service.verify(token).isPresent());
+        // An older revocation, e.g. polled from another instance, does not bring the token back
+        service.revokeUser(1L, issuedAt - 1);
+        assertFalse(service.verify(token).isPresent());
+    }
+
+    /**
+     * Per-request cost of authenticating with a cached token, an uncached token and
+     * a BCrypt check. Run with {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void authOverheadPerRequest() {
+        SessionTokenService cached = new SessionTokenService(SECRET, 3600, 10_000);
+        SessionTokenService uncached = new SessionTokenService(SECRET, 3600, 0);
+        String[] tokens = new String[1000];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = cached.issue((long) i, UserRole.USER).token();
+        }
+        PasswordEncoder passwordEncoder = new PasswordEncoder();
+        String hash = passwordEncoder.encode("password");
+
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("cached token: %d ns, uncached token: %d ns, bcrypt: %d ns%n",
+                    nanosPerCall(1_000_000, i -> cached.verify(tokens[i % tokens.length]).isPresent()),
+                    nanosPerCall(1_000_000, i -> uncached.verify(tokens[i % tokens.length]).isPresent()),
+                    nanosPerCall(20, i -> passwordEncoder.matches("password", hash)));
+        }
+    }
+
+    private static long nanosPerCall(int calls, IntPredicate call) {
+        int valid = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            valid += call.test(i) ? 1 : 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(calls, valid);
+        return elapsed / calls;
+    }
+}
@@ -0,0 +1,114 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dtoconverter.ContentDTOAssembler;
+import instagram_clone.event.ContentDeletedEvent;
+import instagram_clone.event.ContentVotedEvent;
+import instagram_clone.model.Content;
+import instagram_clone.model.User;
+import instagram_clone.model.Vote;
+import instagram_clone.model.VoteType;
+import instagram_clone.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class CoalescingVoteIngestorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ScoreCalculationService scoreCalculationService;
+    @Autowired
+    private ContentDTOAssembler contentDTOAssembler;
+    @Autowired
+    private VoteService voteService;
+
+    @Test
+    void contentDeletedDuringFlushOnlyDropsItsOwnVotes() {
+        Long author = TestUsers.create(jdbcTemplate, "ingest-author");
+        Long voter = TestUsers.create(jdbcTemplate, "ingest-voter");
+        Long deleted = post(author);
+        Long kept = post(author);
+
+        // The deletion lands while the stripe holding the deleted post is being written, and fails that write
+        AtomicReference<CoalescingVoteIngestor> ingestor = new AtomicReference<>();
+        ApplicationEventPublisher publisher = event -> {
+            if (event instanceof ContentVotedEvent voted && voted.contentIds().contains(deleted)) {
+                ingestor.get().onContentDeleted(new ContentDeletedEvent(List.of(deleted)));
+                throw new IllegalStateException("content was deleted");
+            }
+        };
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ingestor.set(new CoalescingVoteIngestor(jdbcTemplate, transactionTemplate, userRepository,
+                scoreCalculationService, contentDTOAssembler, publisher, registry, "coalescing", 10_000, 64));
+
+        ingestor.get().submitVote(deleted, voter, VoteType.UPVOTE);
+        ingestor.get().submitVote(kept, voter, VoteType.UPVOTE);
+        ingestor.get().flush();
+
+        assertEquals(1, votes(kept));
+        assertEquals(0, votes(deleted));
+        assertEquals(0.0, registry.get("votes.ingestion.pending").gauge().value());
+
+        ingestor.get().flush();
+        assertEquals(0.0, registry.get("votes.ingestion.dropped").counter().count());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM score_events WHERE user_id = ?", Integer.class, author));
+    }
+
+    @Test
+    void flushReplacesVotesWrittenDirectlySinceStaging() {
+        Long author = TestUsers.create(jdbcTemplate, "direct-author");
+        Long voter = TestUsers.create(jdbcTemplate, "direct-voter");
+        Long post = post(author);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        CoalescingVoteIngestor ingestor = new CoalescingVoteIngestor(jdbcTemplate, transactionTemplate, userRepository,
+                scoreCalculationService, contentDTOAssembler, event -> { }, registry, "coalescing", 10_000, 64);
+
+        // Staged as a new vote, then a direct write stores one first
+        ingestor.submitVote(post, voter, VoteType.UPVOTE);
+        Vote direct = new Vote();
+        direct.setUser(new User());
+        direct.getUser().setId(voter);
+        direct.setContent(new Content());
+        direct.getContent().setId(post);
+        direct.setType(VoteType.DOWN_VOTE);
+        voteService.save(direct);
+        ingestor.flush();
+
+        assertEquals(0.0, registry.get("votes.ingestion.dropped").counter().count());
+        assertEquals("UPVOTE", jdbcTemplate.queryForObject(
+                "SELECT type FROM votes WHERE user_id = ? AND content_id = ?", String.class, voter, post));
+        assertEquals(List.of(1, 0), jdbcTemplate.queryForObject(
+                "SELECT upvote_count, downvote_count FROM contents WHERE id = ?",
+                (rs, rowNum) -> List.of(rs.getInt(1), rs.getInt(2)), post));
+    }
+
+    private int votes(Long contentId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM votes WHERE content_id = ?", Integer.class, contentId);
+    }
+
+    private Long post(Long author) {
+        jdbcTemplate.update("INSERT INTO contents (author_id, type, title, text, date_time, status, is_commentable)" +
+                " VALUES (?, 'POST', 'ingest', 'ingest', CURRENT_TIMESTAMP, 'JUST_POSTED', true)", author);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM contents", Long.class);
+    }
+}
@@ -0,0 +1,87 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.VoteType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ContentDeletionServiceTest {
+
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private ContentDeletionService contentDeletionService;
+    @Autowired
+    private ScoreLedgerService scoreLedgerService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void subtreeIsRemovedAndVoteScoresReversed() {
+        Long author = TestUsers.create(jdbcTemplate, "delete-author");
+        Long voter = TestUsers.create(jdbcTemplate, "delete-voter");
+        ContentDTO post = create(author, null, ContentType.POST);
+        ContentDTO comment = create(voter, post.getId(), ContentType.COMMENT);
+        ContentDTO reply = create(author, comment.getId(), ContentType.COMMENT);
+        ContentDTO survivor = create(author, null, ContentType.POST);
+
+        contentService.addVote(post.getId(), voter, VoteType.UPVOTE);
+        contentService.addVote(reply.getId(), voter, VoteType.DOWN_VOTE);
+        contentService.addVote(comment.getId(), author, VoteType.UPVOTE);
+        contentService.addVote(survivor.getId(), voter, VoteType.UPVOTE);
+        assertEquals(1.0 - 2.0 + 1.0, scoreLedgerService.currentScore(author), 0.001);
+        assertEquals(2.0 - 1.0, scoreLedgerService.currentScore(voter), 0.001);
+
+        assertTrue(contentDeletionService.deleteSubtree(post.getId()));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM contents WHERE id IN (?, ?, ?)", post.getId(), comment.getId(), reply.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM votes WHERE content_id IN (?, ?, ?)", post.getId(), comment.getId(), reply.getId()));
+        assertEquals(1, count("SELECT COUNT(*) FROM votes WHERE content_id = ?", survivor.getId()));
+        assertEquals(1.0, scoreLedgerService.currentScore(author), 0.001);
+        assertEquals(0.0, scoreLedgerService.currentScore(voter), 0.001);
+    }
+
+    @Test
+    void subtreeWithoutPathsIsRemovedThroughParentLinks() {
+        Long author = TestUsers.create(jdbcTemplate, "legacy-delete-author");
+        ContentDTO post = create(author, null, ContentType.POST);
+        ContentDTO comment = create(author, post.getId(), ContentType.COMMENT);
+        ContentDTO reply = create(author, comment.getId(), ContentType.COMMENT);
+        ContentDTO sibling = create(author, post.getId(), ContentType.COMMENT);
+        // As left by releases before materialized paths, until the backfill reaches them
+        jdbcTemplate.update("UPDATE contents SET path = NULL, depth = NULL WHERE id IN (?, ?, ?, ?)",
+                post.getId(), comment.getId(), reply.getId(), sibling.getId());
+
+        assertTrue(contentDeletionService.deleteSubtree(post.getId()));
+
+        assertEquals(0, count("SELECT COUNT(*) FROM contents WHERE id IN (?, ?, ?, ?)",
+                post.getId(), comment.getId(), reply.getId(), sibling.getId()));
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    private ContentDTO create(Long authorId, Long parentId, ContentType type) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle("delete");
+        content.setText("delete text");
+        content.setContentType(type);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return contentService.create(content);
+    }
+}
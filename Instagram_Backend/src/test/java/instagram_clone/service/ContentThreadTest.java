@@ -0,0 +1,100 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.CommentNodeDTO;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.CursorPageDTO;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.util.ContentPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class ContentThreadTest {
+
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void threadIsAssembledAndPagedOverReplies() {
+        Long authorId = TestUsers.create(jdbcTemplate, "thread-author");
+
+        ContentDTO post = create(authorId, null, ContentType.POST);
+        ContentDTO first = create(authorId, post.getId(), ContentType.COMMENT);
+        ContentDTO firstReply = create(authorId, first.getId(), ContentType.COMMENT);
+        ContentDTO deepReply = create(authorId, firstReply.getId(), ContentType.COMMENT);
+        ContentDTO second = create(authorId, post.getId(), ContentType.COMMENT);
+        ContentDTO third = create(authorId, post.getId(), ContentType.COMMENT);
+        ContentDTO thirdReply = create(authorId, third.getId(), ContentType.COMMENT);
+
+        CursorPageDTO<CommentNodeDTO> page = contentService.findThread(post.getId(), null, 2, null, ImageSize.SMALL);
+        assertEquals(List.of(first.getId(), second.getId()), ids(page.getItems()));
+        CommentNodeDTO firstNode = page.getItems().get(0);
+        assertEquals(List.of(firstReply.getId()), ids(firstNode.getReplies()));
+        assertEquals(List.of(deepReply.getId()), ids(firstNode.getReplies().get(0).getReplies()));
+        assertEquals(String.valueOf(second.getId()), page.getNextCursor());
+
+        CursorPageDTO<CommentNodeDTO> next = contentService.findThread(post.getId(), null, 2, page.getNextCursor(), ImageSize.SMALL);
+        assertEquals(List.of(third.getId()), ids(next.getItems()));
+        assertEquals(List.of(thirdReply.getId()), ids(next.getItems().get(0).getReplies()));
+        assertNull(next.getNextCursor());
+
+        CursorPageDTO<CommentNodeDTO> shallow = contentService.findThread(post.getId(), 2, 10, null, ImageSize.SMALL);
+        assertEquals(List.of(firstReply.getId()), ids(shallow.getItems().get(0).getReplies()));
+        assertEquals(List.of(), ids(shallow.getItems().get(0).getReplies().get(0).getReplies()));
+    }
+
+    @Test
+    void rowsWithoutPathsAreRepliedToAndServed() {
+        Long authorId = TestUsers.create(jdbcTemplate, "legacy-author");
+        ContentDTO post = create(authorId, null, ContentType.POST);
+        ContentDTO comment = create(authorId, post.getId(), ContentType.COMMENT);
+        ContentDTO reply = create(authorId, comment.getId(), ContentType.COMMENT);
+        // As left by releases before materialized paths, until the backfill reaches them
+        jdbcTemplate.update("UPDATE contents SET path = NULL, depth = NULL WHERE id IN (?, ?, ?)",
+                post.getId(), comment.getId(), reply.getId());
+
+        ContentDTO newReply = create(authorId, reply.getId(), ContentType.COMMENT);
+        String expectedPath = ContentPath.child(ContentPath.child(ContentPath.child(
+                ContentPath.segment(post.getId()), comment.getId()), reply.getId()), newReply.getId());
+        assertEquals(expectedPath, jdbcTemplate.queryForObject(
+                "SELECT path FROM contents WHERE id = ?", String.class, newReply.getId()));
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT depth FROM contents WHERE id = ?", Integer.class, newReply.getId()));
+
+        CursorPageDTO<CommentNodeDTO> page = contentService.findThread(post.getId(), null, 10, null, ImageSize.SMALL);
+        assertEquals(List.of(comment.getId()), ids(page.getItems()));
+        CommentNodeDTO replyNode = page.getItems().get(0).getReplies().get(0);
+        assertEquals(reply.getId(), replyNode.getContent().getId());
+        assertEquals(List.of(newReply.getId()), ids(replyNode.getReplies()));
+    }
+
+    private ContentDTO create(Long authorId, Long parentId, ContentType type) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle("thread");
+        content.setText("thread text");
+        content.setContentType(type);
+        content.setAuthorId(authorId);
+        content.setParentId(parentId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return contentService.create(content);
+    }
+
+    private static List<Long> ids(List<CommentNodeDTO> nodes) {
+        return nodes.stream().map(node -> node.getContent().getId()).toList();
+    }
+}
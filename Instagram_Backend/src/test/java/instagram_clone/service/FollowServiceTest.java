@@ -0,0 +1,73 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class FollowServiceTest {
+
+    @Autowired
+    private FollowService followService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentFollowsOfTheSameUserCountOnce() throws Exception {
+        Long follower = TestUsers.create(jdbcTemplate, "race-follower");
+        Long followee = TestUsers.create(jdbcTemplate, "race-followee");
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> follows = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                follows.add(executor.submit(() -> {
+                    start.await();
+                    followService.follow(follower, followee);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> follow : follows) {
+                follow.get();
+            }
+        }
+
+        assertEquals(List.of(followee), followService.findFolloweeIds(follower));
+        assertEquals(1, followerCount(followee));
+    }
+
+    @Test
+    void deletingAFollowerLowersTheFolloweeCount() {
+        Long follower = TestUsers.create(jdbcTemplate, "leaving-follower");
+        Long staying = TestUsers.create(jdbcTemplate, "staying-follower");
+        Long followee = TestUsers.create(jdbcTemplate, "kept-followee");
+        followService.follow(follower, followee);
+        followService.follow(staying, followee);
+        assertEquals(2, followerCount(followee));
+
+        userService.deleteById(follower);
+
+        assertEquals(1, followerCount(followee));
+        assertEquals(List.of(staying), followService.findFollowerIds(followee));
+    }
+
+    private long followerCount(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT follower_count FROM users WHERE id = ?", Long.class, userId);
+    }
+}
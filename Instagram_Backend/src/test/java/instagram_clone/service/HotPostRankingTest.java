@@ -0,0 +1,71 @@
+package instagram_clone.service;
+
+import instagram_clone.event.ContentDeletedEvent;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotPostRankingTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void ranksByDecayedNetVotesWithinCapacity() {
+        HotPostRanking ranking = new HotPostRanking(null, 3, 12, 168);
+        ranking.update(1, 100, NOW.minusHours(24));
+        ranking.update(2, 30, NOW);
+        ranking.update(3, 20, NOW.minusHours(1));
+        ranking.update(4, 1, NOW);
+        // 100 votes two half-lives ago weigh 25 now
+        assertEquals(List.of(2L, 1L, 3L), ranking.top(10));
+
+        ranking.update(4, 60, NOW);
+        assertEquals(List.of(4L, 2L, 1L), ranking.top(10));
+        assertEquals(List.of(4L), ranking.top(1));
+
+        ranking.update(2, 0, NOW);
+        assertEquals(List.of(4L, 1L), ranking.top(10));
+        ranking.onContentDeleted(new ContentDeletedEvent(List.of(4L)));
+        assertEquals(List.of(1L), ranking.top(10));
+    }
+
+    @Tag("benchmark")
+    @Test
+    void absorbsHighVoteRates() {
+        int posts = 200_000;
+        int votes = 5_000_000;
+        HotPostRanking ranking = new HotPostRanking(null, 500, 12, 168);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] net = new long[posts];
+        LocalDateTime[] created = new LocalDateTime[posts];
+        for (int i = 0; i < posts; i++) {
+            created[i] = NOW.minusSeconds(random.nextInt(7 * 24 * 3600));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < votes; i++) {
+            // Skewed towards a few popular posts, as real vote traffic is
+            int post = (int) (posts * Math.pow(random.nextDouble(), 3));
+            net[post] += random.nextInt(10) < 8 ? 1 : -1;
+            ranking.update(post, net[post], created[post]);
+        }
+        double updateNanos = (System.nanoTime() - start) / (double) votes;
+
+        start = System.nanoTime();
+        int reads = 100_000;
+        for (int i = 0; i < reads; i++) {
+            ranking.update(i % 1000, ++net[i % 1000], created[i % 1000]);
+            ranking.top(50);
+        }
+        double readMicros = (System.nanoTime() - start) / 1e3 / reads;
+
+        System.out.printf("hot ranking: %.0f ns/update, %.1f us/read after an update%n", updateNanos, readMicros);
+        assertTrue(updateNanos < 5_000, "update took " + updateNanos + " ns");
+        assertTrue(readMicros < 1_000, "read took " + readMicros + " us");
+    }
+}
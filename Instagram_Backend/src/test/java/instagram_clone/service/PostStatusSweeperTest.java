@@ -0,0 +1,65 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.cache.EntityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class PostStatusSweeperTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    @Autowired
+    private EntityCache entityCache;
+
+    @Test
+    void outdatesOldAndIdlePostsInChunks() {
+        Long authorId = TestUsers.create(jdbcTemplate, "sweep-author");
+        LocalDateTime now = LocalDateTime.now();
+
+        long old = insert(authorId, null, now.minusHours(100), "FIRST_REACTIONS");
+        long idle = insert(authorId, null, now.minusHours(30), "JUST_POSTED");
+        long active = insert(authorId, null, now.minusHours(30), "FIRST_REACTIONS");
+        insert(authorId, active, now.minusHours(2), "JUST_POSTED");
+        long fresh = insert(authorId, null, now.minusHours(1), "JUST_POSTED");
+        long manual = insert(authorId, null, now.minusHours(100), "OUTDATED");
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PostStatusSweeper sweeper = new PostStatusSweeper(namedParameterJdbcTemplate, entityCache, meterRegistry, true, 72, 24, 1);
+        sweeper.sweep();
+
+        assertEquals("OUTDATED", status(old));
+        assertEquals("OUTDATED", status(idle));
+        assertEquals("FIRST_REACTIONS", status(active));
+        assertEquals("JUST_POSTED", status(fresh));
+        assertEquals("OUTDATED", status(manual));
+        assertEquals(2, (long) meterRegistry.get("posts.status.sweep.transitioned").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("posts.status.sweep").timer().count());
+    }
+
+    private long insert(Long authorId, Long parentId, LocalDateTime dateTime, String status) {
+        jdbcTemplate.update("INSERT INTO contents (author_id, parent_id, type, title, text, date_time, status, is_commentable)" +
+                        " VALUES (?, ?, ?, 'sweep', 'sweep', ?, ?, true)",
+                authorId, parentId, parentId == null ? "POST" : "COMMENT", Timestamp.valueOf(dateTime), status);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM contents", Long.class);
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM contents WHERE id = ?", String.class, id);
+    }
+}
@@ -0,0 +1,72 @@
+package instagram_clone.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.VoteType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScoreCalculationServiceTest {
+
+    @Test
+    void localTableMatchesRules() {
+        ScoreCalculationService service = new ScoreCalculationService(new ObjectMapper(), new SimpleMeterRegistry(),
+                "http://localhost:1", "local", 500, 60_000);
+
+        assertEquals(1.0, service.baseScore(ContentType.POST, VoteType.UPVOTE));
+        assertEquals(-2.0, service.baseScore(ContentType.COMMENT, VoteType.DOWN_VOTE));
+
+        ScoreCalculationService.VoteScoreDelta flip = service.voteDelta(ContentType.COMMENT, VoteType.DOWN_VOTE, VoteType.UPVOTE);
+        assertEquals(4.0, flip.authorDelta());
+        assertEquals(1.0, flip.voterDelta());
+
+        ScoreCalculationService.VoteScoreDelta withdraw = service.voteDelta(ContentType.POST, VoteType.UPVOTE, null);
+        assertEquals(-1.0, withdraw.authorDelta());
+        assertEquals(0.0, withdraw.voterDelta());
+    }
+
+    @Test
+    void remoteTableIsFetchedInOneBatchAndCached() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/calculate", exchange -> {
+            calls.incrementAndGet();
+            byte[] body = "{\"scores\":[2.5,-1.5,5.0,-2.5]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            ScoreCalculationService service = new ScoreCalculationService(new ObjectMapper(), new SimpleMeterRegistry(),
+                    "http://localhost:" + server.getAddress().getPort(), "remote", 2000, 60_000);
+            service.warmUp();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (service.baseScore(ContentType.POST, VoteType.UPVOTE) != 2.5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2.5, service.baseScore(ContentType.POST, VoteType.UPVOTE));
+            assertEquals(-2.5, service.baseScore(ContentType.COMMENT, VoteType.DOWN_VOTE));
+            assertEquals(1, calls.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void unreachableServiceFallsBackToLocalTable() {
+        ScoreCalculationService service = new ScoreCalculationService(new ObjectMapper(), new SimpleMeterRegistry(),
+                "http://localhost:1", "remote", 200, 60_000);
+        service.warmUp();
+
+        assertEquals(2.0, service.baseScore(ContentType.COMMENT, VoteType.UPVOTE));
+    }
+}
@@ -0,0 +1,85 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "score.ledger.compaction.enabled=false",
+        "score.ledger.compaction.batch-size=2"
+})
+@ActiveProfiles("h2")
+class ScoreLedgerCompactorTest {
+
+    @Autowired
+    private ScoreLedgerService scoreLedgerService;
+    @Autowired
+    private ScoreLedgerCompactor scoreLedgerCompactor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void currentScoreIsStableAcrossCompaction() {
+        Long userId = TestUsers.create(jdbcTemplate, "ledger-user", 10);
+
+        scoreLedgerService.record(userId, 2.0, null);
+        scoreLedgerService.record(userId, -1.0, null);
+        scoreLedgerService.record(userId, 3.0, null);
+        assertEquals(14.0, scoreLedgerService.currentScore(userId), 0.001);
+        assertEquals(10.0, materializedScore(userId), 0.001);
+
+        scoreLedgerCompactor.compact();
+        assertEquals(14.0, materializedScore(userId), 0.001);
+        assertEquals(14.0, scoreLedgerService.currentScore(userId), 0.001);
+
+        scoreLedgerService.record(userId, -4.0, null);
+        assertEquals(10.0, scoreLedgerService.currentScore(userId), 0.001);
+    }
+
+    @Test
+    void eventCommittedAfterLaterOnesIsStillCompacted() throws Exception {
+        Long userId = TestUsers.create(jdbcTemplate, "ledger-late");
+
+        // Takes the lower id, then stays uncommitted while a later event commits and is compacted
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowWriter = Thread.ofVirtual().start(() -> transactionTemplate.executeWithoutResult(status -> {
+            scoreLedgerService.record(userId, 5.0, null);
+            inserted.countDown();
+            awaitQuietly(release);
+        }));
+        inserted.await();
+        scoreLedgerService.record(userId, 1.0, null);
+        scoreLedgerCompactor.compact();
+        assertEquals(1.0, materializedScore(userId), 0.001);
+
+        release.countDown();
+        slowWriter.join();
+        assertEquals(6.0, scoreLedgerService.currentScore(userId), 0.001);
+        scoreLedgerCompactor.compact();
+        assertEquals(6.0, materializedScore(userId), 0.001);
+        assertEquals(6.0, scoreLedgerService.currentScore(userId), 0.001);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double materializedScore(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT score FROM users WHERE id = ?", Double.class, userId);
+    }
+}
@@ -0,0 +1,63 @@
+package instagram_clone.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagBitmapIndexTest {
+    private static final long TRAVEL = 1L;
+    private static final long FOOD = 2L;
+    private static final long ADS = 3L;
+
+    @Test
+    void combinesTagsAndPagesNewestFirst() {
+        TagBitmapIndex index = new TagBitmapIndex(null);
+        index.add(10L, List.of(TRAVEL, FOOD));
+        index.add(11L, List.of(TRAVEL, FOOD, ADS));
+        index.add(12L, List.of(TRAVEL));
+        index.add(13L, List.of(FOOD));
+        index.add(14L, List.of(TRAVEL, FOOD));
+        index.add(15L, List.of());
+
+        TagBitmapIndex.Page first = index.query(List.of(TRAVEL, FOOD), List.of(), List.of(ADS), null, 1);
+        assertEquals(List.of(14L), first.ids());
+        TagBitmapIndex.Page second = index.query(List.of(TRAVEL, FOOD), List.of(), List.of(ADS), first.nextCursor(), 1);
+        assertEquals(List.of(10L), second.ids());
+        assertNull(second.nextCursor());
+
+        assertEquals(List.of(13L, 12L, 10L), index.query(List.of(), List.of(TRAVEL, FOOD), List.of(ADS), 14L, 10).ids());
+        assertEquals(List.of(15L, 13L), index.query(List.of(), List.of(), List.of(TRAVEL, ADS), null, 10).ids());
+        assertTrue(index.query(List.of(99L), List.of(), List.of(), null, 10).ids().isEmpty());
+
+        index.remove(Set.of(14L, 11L));
+        assertEquals(List.of(10L), index.query(List.of(TRAVEL, FOOD), List.of(), List.of(), null, 10).ids());
+        assertTrue(index.query(List.of(ADS), List.of(), List.of(), null, 10).ids().isEmpty());
+    }
+
+    @Tag("benchmark")
+    @Test
+    void intersectsMillionPostTagsInMilliseconds() {
+        TagBitmapIndex index = new TagBitmapIndex(null);
+        for (long id = 1; id <= 3_000_000; id++) {
+            index.add(id, id % 3 == 0 ? List.of(TRAVEL, FOOD) : id % 7 == 0 ? List.of(TRAVEL, ADS) : List.of(TRAVEL));
+        }
+        for (int i = 0; i < 200; i++) {
+            index.query(List.of(TRAVEL, FOOD), List.of(), List.of(ADS), null, 20);
+        }
+
+        int runs = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            index.query(List.of(TRAVEL, FOOD), List.of(), List.of(ADS), null, 20);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        System.out.printf("travel AND food NOT ads over 3M posts: %.3f ms/query%n", millis);
+        assertTrue(millis < 5, "query took " + millis + " ms");
+    }
+}
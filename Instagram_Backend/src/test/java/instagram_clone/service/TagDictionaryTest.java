@@ -0,0 +1,60 @@
+package instagram_clone.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class TagDictionaryTest {
+
+    @Autowired
+    private TagDictionary tagDictionary;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentResolvesCreateEachTagOnce() throws Exception {
+        List<String> names = List.of("dict-a", "dict-b", "dict-c", "dict-a");
+        List<Future<Map<String, Long>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> tagDictionary.resolve(names)));
+            }
+        }
+
+        Map<String, Long> first = results.get(0).get();
+        assertEquals(List.of("dict-a", "dict-b", "dict-c"), List.copyOf(first.keySet()));
+        for (Future<Map<String, Long>> result : results) {
+            assertEquals(first, result.get());
+        }
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM tags WHERE name IN ('dict-a', 'dict-b', 'dict-c')", Integer.class));
+    }
+
+    @Test
+    void rolledBackInsertIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            tagDictionary.resolve(List.of("dict-rollback"));
+            throw new IllegalStateException("parent not found");
+        }));
+
+        Long id = tagDictionary.resolve(List.of("dict-rollback")).get("dict-rollback");
+        assertEquals(id, jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = 'dict-rollback'", Long.class));
+    }
+}
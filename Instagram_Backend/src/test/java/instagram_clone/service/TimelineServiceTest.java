@@ -0,0 +1,116 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.model.ContentType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class TimelineServiceTest {
+
+    @Autowired
+    private TimelineService timelineService;
+    @Autowired
+    private FollowService followService;
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private ContentDeletionService contentDeletionService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void mergesFannedOutAndPulledPosts() throws InterruptedException {
+        Long reader = TestUsers.create(jdbcTemplate, "timeline-reader");
+        Long friend = TestUsers.create(jdbcTemplate, "timeline-friend");
+        Long celebrity = TestUsers.create(jdbcTemplate, "timeline-celebrity");
+        followService.follow(reader, friend);
+        followService.follow(reader, celebrity);
+        jdbcTemplate.update("UPDATE users SET follower_count = 1000000 WHERE id = ?", celebrity);
+
+        Long first = post(friend);
+        Long second = post(celebrity);
+        assertEquals(List.of(second, first), timelineService.timelineIds(reader, Long.MAX_VALUE, 10));
+
+        Long third = post(friend);
+        Long fourth = post(celebrity);
+        List<Long> expected = List.of(fourth, third, second, first);
+        for (int i = 0; i < 100 && !expected.equals(timelineService.timelineIds(reader, Long.MAX_VALUE, 10)); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, timelineService.timelineIds(reader, Long.MAX_VALUE, 10));
+        assertEquals(List.of(second, first), timelineService.timelineIds(reader, third, 10));
+
+        followService.unfollow(reader, friend);
+        assertEquals(List.of(fourth, second), timelineService.timelineIds(reader, Long.MAX_VALUE, 10));
+    }
+
+    @Test
+    void ringKeepsNewestIdsInOrder() {
+        TimelineService.PostRing ring = TimelineService.PostRing.of(List.of(5L, 3L), 3);
+        ring.add(6L);
+        ring.add(4L);
+        ring.add(4L);
+        ring.add(1L);
+
+        TimelineService.PostRing.Slice slice = ring.before(Long.MAX_VALUE, 10);
+        assertEquals(List.of(6L, 5L, 4L), boxed(slice.ids()));
+        assertEquals(3L, slice.completeAbove());
+        assertEquals(List.of(4L), boxed(ring.before(5L, 10).ids()));
+    }
+
+    @Test
+    void ringKeepsPushesAndDeletionsFromDuringItsLoad() {
+        TimelineService.PostRing ring = new TimelineService.PostRing(3);
+        ring.add(7L);
+        ring.remove(Set.of(4L));
+        ring.fill(List.of(6L, 5L, 4L, 3L));
+
+        TimelineService.PostRing.Slice slice = ring.before(Long.MAX_VALUE, 10);
+        assertEquals(List.of(7L, 6L, 5L), boxed(slice.ids()));
+        assertEquals(4L, slice.completeAbove());
+    }
+
+    @Test
+    void deletedPostsLeaveTimelines() throws InterruptedException {
+        Long reader = TestUsers.create(jdbcTemplate, "timeline-deletion-reader");
+        Long friend = TestUsers.create(jdbcTemplate, "timeline-deletion-friend");
+        followService.follow(reader, friend);
+        Long kept = post(friend);
+        Long deleted = post(friend);
+        assertEquals(List.of(deleted, kept), timelineService.timelineIds(reader, Long.MAX_VALUE, 10));
+
+        contentDeletionService.deleteSubtree(deleted);
+        List<Long> expected = List.of(kept);
+        for (int i = 0; i < 100 && !expected.equals(timelineService.timelineIds(reader, Long.MAX_VALUE, 10)); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, timelineService.timelineIds(reader, Long.MAX_VALUE, 10));
+    }
+
+    private Long post(Long authorId) {
+        ContentCreateDTO content = new ContentCreateDTO();
+        content.setTitle("timeline");
+        content.setText("timeline post");
+        content.setContentType(ContentType.POST);
+        content.setAuthorId(authorId);
+        content.setCommentable(true);
+        content.setTags("[]");
+        return contentService.create(content).getId();
+    }
+
+    private static List<Long> boxed(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+}
@@ -0,0 +1,45 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.cache.EntityCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("h2")
+class VoteCounterReconcilerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityCache entityCache;
+
+    @Test
+    void startupFillsCountersLeftAtZeroByAnUpgrade() {
+        Long author = TestUsers.create(jdbcTemplate, "reconcile-author");
+        Long voter = TestUsers.create(jdbcTemplate, "reconcile-voter");
+        jdbcTemplate.update("INSERT INTO contents (author_id, type, title, text, date_time, status, is_commentable)" +
+                " VALUES (?, 'POST', 'reconcile', 'reconcile', CURRENT_TIMESTAMP, 'JUST_POSTED', true)", author);
+        Long post = jdbcTemplate.queryForObject("SELECT MAX(id) FROM contents", Long.class);
+        // Written before the counter columns existed, so the counters still read 0
+        jdbcTemplate.update("INSERT INTO votes (user_id, content_id, type, date_time)" +
+                " VALUES (?, ?, 'UPVOTE', CURRENT_TIMESTAMP)", voter, post);
+        VoteCounterReconciler reconciler = new VoteCounterReconciler(jdbcTemplate, entityCache,
+                new SimpleMeterRegistry(), true, false, 1000, 2);
+        assertTrue(reconciler.countersUninitialized());
+
+        reconciler.reconcileOnStartup();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT upvote_count FROM contents WHERE id = ?", Integer.class, post));
+        assertFalse(reconciler.countersUninitialized());
+    }
+}
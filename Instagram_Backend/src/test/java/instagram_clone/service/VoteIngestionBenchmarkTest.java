@@ -0,0 +1,141 @@
+package instagram_clone.service;
+
+import instagram_clone.TestUsers;
+import instagram_clone.dto.ContentCreateDTO;
+import instagram_clone.dto.ContentDTO;
+import instagram_clone.dto.UserCreateDTO;
+import instagram_clone.dto.UserDTO;
+import instagram_clone.dtoconverter.ContentDTOAssembler;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.UserRole;
+import instagram_clone.model.VoteType;
+import instagram_clone.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many voters hitting one post, written per vote vs. coalesced.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("h2")
+class VoteIngestionBenchmarkTest {
+    private static final int VOTERS = 2000;
+    private static final int CONCURRENCY = 32;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private ContentService contentService;
+    @Autowired
+    private ScoreCalculationService scoreCalculationService;
+    @Autowired
+    private ContentDTOAssembler contentDTOAssembler;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ScoreLedgerService scoreLedgerService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void coalescedVotesOutpaceDirectWrites() throws Exception {
+        UserDTO author = createUser("bench-author");
+        // Inserted directly: password hashing would dominate the setup
+        List<Long> voters = TestUsers.createAll(jdbcTemplate, "bench-voter-", VOTERS);
+
+        ContentDTO directPost = createPost(author.getId());
+        AtomicInteger directFailures = new AtomicInteger();
+        long directNanos = run(voters, voterId -> {
+            try {
+                contentService.addVote(directPost.getId(), voterId, VoteType.UPVOTE);
+            } catch (RuntimeException e) {
+                directFailures.incrementAndGet();
+            }
+        });
+
+        CoalescingVoteIngestor ingestor = new CoalescingVoteIngestor(jdbcTemplate, transactionTemplate,
+                userRepository, scoreCalculationService, contentDTOAssembler, eventPublisher, new SimpleMeterRegistry(),
+                "coalescing", 10_000, 64);
+        ContentDTO coalescedPost = createPost(author.getId());
+        double scoreBefore = authorScore(author.getId());
+        ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+        flusher.scheduleWithFixedDelay(ingestor::flush, 50, 50, TimeUnit.MILLISECONDS);
+        long coalescedNanos = run(voters, voterId -> ingestor.submitVote(coalescedPost.getId(), voterId, VoteType.UPVOTE));
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        ingestor.flush();
+
+        System.out.printf("direct:     %,.0f votes/s (%d failed)%n", VOTERS / (directNanos / 1e9), directFailures.get());
+        System.out.printf("coalescing: %,.0f votes/s%n", VOTERS / (coalescedNanos / 1e9));
+
+        assertEquals(VOTERS, jdbcTemplate.queryForObject(
+                "SELECT upvote_count FROM contents WHERE id = ?", Integer.class, coalescedPost.getId()));
+        assertEquals(VOTERS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM votes WHERE content_id = ?", Integer.class, coalescedPost.getId()));
+        assertEquals(scoreBefore + VOTERS, authorScore(author.getId()), 0.001);
+    }
+
+    private interface VoteCall {
+        void vote(Long voterId);
+    }
+
+    private long run(List<Long> voters, VoteCall call) throws InterruptedException {
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY)) {
+            for (Long voterId : voters) {
+                executor.execute(() -> call.vote(voterId));
+            }
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.MINUTES);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private double authorScore(Long authorId) {
+        return scoreLedgerService.currentScore(authorId);
+    }
+
+    private UserDTO createUser(String name) {
+        UserCreateDTO user = new UserCreateDTO();
+        user.setUsername(name);
+        user.setEmail(name + "@example.com");
+        user.setPassword("password");
+        user.setRole(UserRole.USER);
+        user.setScore(0.0);
+        user.setBanned(false);
+        return userService.create(user);
+    }
+
+    private ContentDTO createPost(Long authorId) {
+        ContentCreateDTO post = new ContentCreateDTO();
+        post.setTitle("Trending " + System.nanoTime());
+        post.setText("benchmark post");
+        post.setContentType(ContentType.POST);
+        post.setAuthorId(authorId);
+        post.setCommentable(true);
+        post.setTags("[]");
+        return contentService.create(post);
+    }
+}
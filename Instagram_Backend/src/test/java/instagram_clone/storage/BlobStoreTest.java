@@ -0,0 +1,48 @@
+package instagram_clone.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void storesBlobUnderItsSha256() throws IOException {
+        BlobStore blobStore = new BlobStore(root.toString());
+        byte[] bytes = "hello".getBytes(StandardCharsets.UTF_8);
+
+        String hash = blobStore.put(bytes);
+
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824", hash);
+        assertArrayEquals(bytes, Files.readAllBytes(blobStore.find(hash).orElseThrow()));
+    }
+
+    @Test
+    void deduplicatesIdenticalContent() {
+        BlobStore blobStore = new BlobStore(root.toString());
+
+        String first = blobStore.put("same".getBytes(StandardCharsets.UTF_8));
+        String second = blobStore.put("same".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void rejectsMalformedHashes() {
+        BlobStore blobStore = new BlobStore(root.toString());
+
+        assertTrue(blobStore.find("../../etc/passwd").isEmpty());
+        assertTrue(blobStore.find(null).isEmpty());
+    }
+}
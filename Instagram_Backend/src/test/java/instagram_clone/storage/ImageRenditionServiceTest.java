@@ -0,0 +1,167 @@
+package instagram_clone.storage;
+
+import instagram_clone.cache.EntityCache;
+import instagram_clone.event.ContentCreatedEvent;
+import instagram_clone.model.ContentType;
+import instagram_clone.model.ImageSize;
+import instagram_clone.repository.ContentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageRenditionServiceTest {
+
+    @TempDir
+    Path root;
+    @Mock
+    private ContentRepository contentRepository;
+    @Mock
+    private EntityCache entityCache;
+
+    @Test
+    void storesSmallAndMediumRenditionsAndEvictsTheContent() throws Exception {
+        BlobStore blobStore = new BlobStore(root.toString());
+        MeterRegistry registry = new SimpleMeterRegistry();
+        String original = blobStore.put(png(1600, 1200));
+
+        render(blobStore, registry, original);
+
+        ArgumentCaptor<String> small = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> medium = ArgumentCaptor.forClass(String.class);
+        verify(contentRepository).updateImageRenditions(eq(1L), small.capture(), medium.capture());
+        assertEquals(ImageSize.SMALL.getMaxWidth(), width(blobStore, small.getValue()));
+        assertEquals(ImageSize.MEDIUM.getMaxWidth(), width(blobStore, medium.getValue()));
+        verify(entityCache).evictContent(1L);
+        assertEquals(1, registry.get("media.renditions.processing").timer().count());
+        assertEquals(0.0, registry.get("media.renditions.rejected").counter().count());
+    }
+
+    @Test
+    void imagesNarrowerThanASizeUseTheOriginalForIt() throws Exception {
+        BlobStore blobStore = new BlobStore(root.toString());
+        String original = blobStore.put(png(600, 400));
+
+        render(blobStore, new SimpleMeterRegistry(), original);
+
+        ArgumentCaptor<String> small = ArgumentCaptor.forClass(String.class);
+        verify(contentRepository).updateImageRenditions(eq(1L), small.capture(),
+                eq(original));
+        assertNotEquals(original, small.getValue());
+        assertEquals(ImageSize.SMALL.getMaxWidth(), width(blobStore, small.getValue()));
+    }
+
+    @Test
+    void undecodableImagesKeepServingTheOriginal() throws Exception {
+        BlobStore blobStore = new BlobStore(root.toString());
+        MeterRegistry registry = new SimpleMeterRegistry();
+        String original = blobStore.put(new byte[]{1, 2, 3, 4});
+
+        render(blobStore, registry, original);
+
+        verify(contentRepository, never()).updateImageRenditions(anyLong(), anyString(), anyString());
+        verify(entityCache, never()).evictContent(any());
+        assertEquals(1, registry.get("media.renditions.processing").timer().count());
+    }
+
+    @Test
+    void imagesBeyondTheQueueAreCountedAndSkipped() throws Exception {
+        BlobStore blobStore = mock(BlobStore.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(blobStore.find(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return Optional.empty();
+        });
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ImageRenditionService service = service(blobStore, registry, 1);
+
+        // One running, one queued, one rejected
+        for (long id = 1; id <= 3; id++) {
+            service.onContentCreated(created(id, "a".repeat(64)));
+        }
+        release.countDown();
+        service.shutdown();
+
+        assertEquals(1.0, registry.get("media.renditions.rejected").counter().count());
+        assertEquals(2, registry.get("media.renditions.processing").timer().count());
+    }
+
+    @Test
+    void backfillRendersImagesThatNeverGotRenditions() throws Exception {
+        BlobStore blobStore = new BlobStore(root.toString());
+        MeterRegistry registry = new SimpleMeterRegistry();
+        String legacy = blobStore.put(png(1600, 1200));
+        when(contentRepository.findMissingRenditionsAfter(eq(0L), any(Limit.class)))
+                .thenReturn(List.<Object[]>of(new Object[]{5L, legacy}));
+        ImageRenditionService service = service(blobStore, registry, 4);
+
+        assertEquals(1, service.backfill());
+        service.shutdown();
+
+        ArgumentCaptor<String> small = ArgumentCaptor.forClass(String.class);
+        verify(contentRepository).updateImageRenditions(eq(5L), small.capture(), anyString());
+        assertEquals(ImageSize.SMALL.getMaxWidth(), width(blobStore, small.getValue()));
+        verify(entityCache).evictContent(5L);
+        assertEquals(1.0, registry.get("media.renditions.backfilled").counter().count());
+    }
+
+    // Runs one rendition for content 1 and waits for it to finish
+    private void render(BlobStore blobStore, MeterRegistry registry, String hash) throws InterruptedException {
+        ImageRenditionService service = service(blobStore, registry, 4);
+        service.onContentCreated(created(1L, hash));
+        service.shutdown();
+    }
+
+    // One worker, so queued work waits behind the running image
+    private ImageRenditionService service(BlobStore blobStore, MeterRegistry registry, int queueCapacity) {
+        return new ImageRenditionService(blobStore, contentRepository, entityCache, registry, 1, queueCapacity, false, 50);
+    }
+
+    private static ContentCreatedEvent created(Long contentId, String imageHash) {
+        return new ContentCreatedEvent(contentId, ContentType.POST, 7L, null, imageHash, LocalDateTime.now(), List.of());
+    }
+
+    private static int width(BlobStore blobStore, String hash) throws IOException {
+        return ImageIO.read(blobStore.find(hash).orElseThrow().toFile()).getWidth();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,26 @@
+package instagram_clone.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FeedCursorTest {
+
+    @Test
+    void roundTrip() {
+        FeedCursor cursor = new FeedCursor(LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_000_000), 42L);
+
+        FeedCursor decoded = FeedCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("bm9zZXBhcmF0b3I"));
+    }
+}
@@ -13,6 +13,7 @@ import {
 import { useNavigate } from 'react-router-dom';
 import { Post } from '../types';
 import { authService } from '../services/authService';
+import { API_BASE_URL, avatarSrc } from '../services/api';
 
 const getStatusColor = (status?: string) => {
   switch (status) {
@@ -105,9 +106,9 @@ const PostCard: React.FC<PostCardProps> = ({
         <Box sx={{ display: 'flex', alignItems: 'center', mb: 2 }}>
           <Avatar 
             sx={{ mr: 2 }}
-            src={post.author.profilePicture ? `data:image/jpeg;base64,${post.author.profilePicture}` : undefined}
+            src={avatarSrc(post.author.avatarUrl)}
           >
-            {!post.author.profilePicture && post.author.username[0].toUpperCase()}
+            {!post.author.avatarUrl && post.author.username[0].toUpperCase()}
           </Avatar>
           <Box sx={{ flexGrow: 1 }}>
             <Typography variant="subtitle1">
@@ -139,11 +140,11 @@ const PostCard: React.FC<PostCardProps> = ({
           {post.title}
         </Typography>
 
-        {post.image && (
+        {post.imageUrl && (
           <CardMedia
             component="img"
             height="300"
-            image={`data:image/jpeg;base64,${post.image}`}
+            image={`${API_BASE_URL}${post.imageUrl}`}
             alt={post.title}
             sx={{ objectFit: 'contain', mb: 2 }}
           />
@@ -20,6 +20,7 @@ import {
 } from '@mui/material';
 import { Post } from '../types';
 import { authService } from '../services/authService';
+import { API_BASE_URL } from '../services/api';
 
 interface PostDetailContentProps {
   post: Post;
@@ -110,10 +111,10 @@ const PostDetailContent: React.FC<PostDetailContentProps> = ({
           </Typography>
         </Box>
 
-        {post.image && (
+        {post.imageUrl && (
           <Box sx={{ mb: 3, display: 'flex', justifyContent: 'center' }}>
             <img
-              src={`data:image/jpeg;base64,${post.image}`}
+              src={`${API_BASE_URL}${post.imageUrl}`}
               alt={post.title}
               style={{ maxWidth: '100%', maxHeight: '500px', objectFit: 'contain' }}
             />
@@ -317,11 +318,11 @@ const PostDetailContent: React.FC<PostDetailContentProps> = ({
                           {comment.text}
                         </Typography>
 
-                        {comment.image && (
+                        {comment.imageUrl && (
                           <CardMedia
                             component="img"
                             height="200"
-                            image={`data:image/jpeg;base64,${comment.image}`}
+                            image={`${API_BASE_URL}${comment.imageUrl}`}
                             alt="Comment image"
                             sx={{ objectFit: 'contain', mb: 2 }}
                           />
@@ -1,6 +1,7 @@
 import React, { useRef } from 'react';
 import { Typography, Box, Paper, TextField, Button, Avatar, Grid, IconButton } from '@mui/material';
 import { UserData } from '../types';
+import { avatarSrc } from '../services/api';
 
 interface ProfileContentProps {
     user: UserData;
@@ -28,13 +29,6 @@ const ProfileContent: React.FC<ProfileContentProps> = ({
 }) => {
     const fileInputRef = useRef<HTMLInputElement>(null);
 
-    React.useEffect(() => {
-        console.log('User profile picture exists:', !!user.profilePicture);
-        if (user.profilePicture) {
-            console.log('Profile picture length:', user.profilePicture.length);
-        }
-    }, [user.profilePicture]);
-
     const handleEditClick = (e: React.MouseEvent) => {
         e.preventDefault();
         onEditClick();
@@ -64,9 +58,9 @@ const ProfileContent: React.FC<ProfileContentProps> = ({
                     <Box sx={{ position: 'relative', mb: 2 }}>
                         <Avatar
                             sx={{ width: 100, height: 100 }}
-                            src={user.profilePicture ? `data:image/jpeg;base64,${user.profilePicture}` : undefined}
+                            src={avatarSrc(user.avatarUrl, 'MEDIUM')}
                         >
-                            {!user.profilePicture && user.username[0].toUpperCase()}
+                            {!user.avatarUrl && user.username[0].toUpperCase()}
                         </Avatar>
                         {isEditing && (
                             <Button
@@ -24,6 +24,7 @@ import PostCard from './PostCard';
 import { postService } from '../services/postService';
 import { authService } from '../services/authService';
 import { userService } from '../services/userService';
+import { avatarSrc } from '../services/api';
 import { Post, UserData } from '../types';
 
 interface UserContentProps {
@@ -51,9 +52,10 @@ const UserContent: React.FC<UserContentProps> = ({
 }) => {
   const { id } = useParams<{ id: string }>();
   const navigate = useNavigate();
-  const [posts, setPosts] = useState<Post[]>([]);
   const [allPosts, setAllPosts] = useState<Post[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const [tagFilter, setTagFilter] = useState('');
   const [titleFilter, setTitleFilter] = useState('');
@@ -88,17 +90,11 @@ const UserContent: React.FC<UserContentProps> = ({
           setIsCurrentUser(currentUser?.id === userId);
         }
 
-        // Fetch posts regardless of which user we're viewing
-        const fetchedPosts = await postService.getAllPosts();
-        console.log('Fetched posts:', fetchedPosts);
-        // Sort posts by dateTime in descending order (newest first)
-        const sortedPosts = fetchedPosts.sort((a, b) => {
-          const dateA = a.dateTime ? new Date(a.dateTime).getTime() : 0;
-          const dateB = b.dateTime ? new Date(b.dateTime).getTime() : 0;
-          return dateB - dateA;
-        });
-        setAllPosts(sortedPosts);
-        setPosts(sortedPosts);
+        // Fetch the first feed page regardless of which user we're viewing;
+        // pages arrive newest first and older ones are appended by loadMore
+        const page = await postService.getPostsPage();
+        setAllPosts(page.items);
+        setNextCursor(page.nextCursor ?? null);
         setError(null);
       } catch (err) {
         setError('Failed to load data');
@@ -112,60 +108,52 @@ const UserContent: React.FC<UserContentProps> = ({
   }, [id]);
 
   useEffect(() => {
-    if (filterType === 'By Tag') {
-      setTagFilter('');
-      setTitleFilter('');
-      setUserFilter('');
-    } else if (filterType === 'By Title') {
-      setTagFilter('');
-      setTitleFilter('');
-      setUserFilter('');
-    } else if (filterType === 'By User') {
-      setTagFilter('');
-      setTitleFilter('');
-      setUserFilter('');
-    } else {
-      setPosts(allPosts);
+    setTagFilter('');
+    setTitleFilter('');
+    setUserFilter('');
+  }, [filterType]);
+
+  const loadMore = async () => {
+    if (!nextCursor) {
+      return;
     }
-  }, [filterType, allPosts]);
+    try {
+      setLoadingMore(true);
+      const page = await postService.getPostsPage(nextCursor);
+      setAllPosts(loaded => [...loaded, ...page.items]);
+      setNextCursor(page.nextCursor ?? null);
+    } catch (err) {
+      console.error('Error loading more posts:', err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
-  const handleTagFilterChange = (event: React.ChangeEvent<HTMLInputElement>) => {
-    const tag = event.target.value;
-    setTagFilter(tag);
-    if (tag.trim() === '') {
-      setPosts(allPosts);
-    } else {
-      const filteredPosts = allPosts.filter(post => 
-        post.tags?.some(t => t.name?.toLowerCase().includes(tag.toLowerCase()))
-      );
-      setPosts(filteredPosts);
+  // Filters apply to every page loaded so far; "Load more" keeps older posts reachable
+  const matchesFilter = (post: Post) => {
+    if (filterType === 'By Tag' && tagFilter.trim() !== '') {
+      return post.tags?.some(t => t.name?.toLowerCase().includes(tagFilter.toLowerCase())) ?? false;
+    }
+    if (filterType === 'By Title' && titleFilter.trim() !== '') {
+      return post.title?.toLowerCase().includes(titleFilter.toLowerCase()) ?? false;
     }
+    if (filterType === 'By User' && userFilter.trim() !== '') {
+      return post.author?.username?.toLowerCase().includes(userFilter.toLowerCase()) ?? false;
+    }
+    return true;
+  };
+  const posts = allPosts.filter(matchesFilter);
+
+  const handleTagFilterChange = (event: React.ChangeEvent<HTMLInputElement>) => {
+    setTagFilter(event.target.value);
   };
 
   const handleTitleFilterChange = (event: React.ChangeEvent<HTMLInputElement>) => {
-    const title = event.target.value;
-    setTitleFilter(title);
-    if (title.trim() === '') {
-      setPosts(allPosts);
-    } else {
-      const filteredPosts = allPosts.filter(post => 
-        post.title?.toLowerCase().includes(title.toLowerCase())
-      );
-      setPosts(filteredPosts);
-    }
+    setTitleFilter(event.target.value);
   };
 
   const handleUserFilterChange = (event: React.ChangeEvent<HTMLInputElement>) => {
-    const username = event.target.value;
-    setUserFilter(username);
-    if (username.trim() === '') {
-      setPosts(allPosts);
-    } else {
-      const filteredPosts = allPosts.filter(post => 
-        post.author?.username?.toLowerCase().includes(username.toLowerCase())
-      );
-      setPosts(filteredPosts);
-    }
+    setUserFilter(event.target.value);
   };
 
   const handleVote = async (postId: number, voteType: 'up' | 'down') => {
@@ -177,10 +165,10 @@ const UserContent: React.FC<UserContentProps> = ({
       }
 
       const voteTypeEnum = voteType === 'up' ? 'UPVOTE' : 'DOWN_VOTE';
-      const updatedPost = await postService.votePost(postId, parseInt(userId), voteTypeEnum);
+      const updatedPost = await postService.votePost(postId, voteTypeEnum);
       
       // Update the posts list with the new vote counts and author score
-      setPosts(posts.map(post => 
+      setAllPosts(allPosts.map(post => 
         post.id === postId ? {
           ...post,
           upvotes: updatedPost.upvotes,
@@ -243,9 +231,9 @@ const UserContent: React.FC<UserContentProps> = ({
           <Avatar
             sx={{ width: 60, height: 60, mr: 2, cursor: 'pointer' }}
             onClick={onProfileClick}
-            src={user?.profilePicture ? `data:image/jpeg;base64,${user.profilePicture}` : undefined}
+            src={avatarSrc(user?.avatarUrl)}
           >
-            {!user?.profilePicture && user?.username[0].toUpperCase()}
+            {!user?.avatarUrl && user?.username[0].toUpperCase()}
           </Avatar>
           <Menu
             anchorEl={profileMenuAnchor}
@@ -372,6 +360,16 @@ const UserContent: React.FC<UserContentProps> = ({
             />
           ))
         )}
+
+        {nextCursor && (
+          <Button
+            variant="outlined"
+            onClick={loadMore}
+            disabled={loadingMore}
+          >
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </Button>
+        )}
       </Container>
     </Box>
   );
@@ -91,7 +91,6 @@ const CreatePost: React.FC = () => {
       formData.append('type', 'POST');
       formData.append('isCommentable', 'true');
       formData.append('status', 'JUST_POSTED');
-      formData.append('authorId', currentUser.id.toString());
       
       if (tags && tags.length > 0) {
         formData.append('tags', JSON.stringify(tags.map(tag => tag.name)));
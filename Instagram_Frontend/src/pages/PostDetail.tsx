@@ -93,8 +93,6 @@ const PostDetail: React.FC = () => {
         throw new Error('User not authenticated');
       }
       
-      formData.append('authorId', currentUser.id.toString());
-      
       if (commentImage) {
         formData.append('image', commentImage);
       }
@@ -158,7 +156,7 @@ const PostDetail: React.FC = () => {
       }
 
       const voteTypeEnum = voteType === 'up' ? 'UPVOTE' : 'DOWN_VOTE';
-      const updatedPost = await postService.votePost(postId, parseInt(userId), voteTypeEnum);
+      const updatedPost = await postService.votePost(postId, voteTypeEnum);
 
       if (post && postId === post.id) {
         const updatedPostWithNewScore = {
@@ -57,7 +57,7 @@ const UserPosts: React.FC = () => {
             }
 
             const voteTypeEnum = voteType === 'up' ? 'UPVOTE' : 'DOWN_VOTE';
-            const updatedPost = await postService.votePost(postId, parseInt(userId), voteTypeEnum);
+            const updatedPost = await postService.votePost(postId, voteTypeEnum);
             
             setPosts(posts.map(post =>
                 post.id === postId ? {
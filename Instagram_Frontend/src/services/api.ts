@@ -1,6 +1,12 @@
 import axios from 'axios';
 
-const API_BASE_URL = 'http://localhost:8080';
+export const API_BASE_URL = 'http://localhost:8080';
+
+export type AvatarSize = 'SMALL' | 'MEDIUM' | 'FULL';
+
+// avatarUrl is versioned, so the browser can keep each image until the user uploads a new one
+export const avatarSrc = (avatarUrl?: string, size: AvatarSize = 'SMALL') =>
+  avatarUrl ? `${API_BASE_URL}${avatarUrl}&size=${size}` : undefined;
 
 const api = axios.create({
   baseURL: API_BASE_URL,
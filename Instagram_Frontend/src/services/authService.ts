@@ -1,19 +1,18 @@
 import api from './api';
-import { LoginRequest, RegisterRequest, AuthResponse, UserData } from '../types';
+import { LoginRequest, RegisterRequest, AuthResponse, LoginResponse, UserData } from '../types';
 import { userService } from './userService';
 
 class AuthService {
   async login(credentials: LoginRequest): Promise<UserData> {
     try {
-      const response = await api.post<UserData>('/users/login', credentials);
-      console.log('Login response:', response.data);
-      
-      if (!response.data || !response.data.id) {
+      const response = await api.post<LoginResponse>('/users/login', credentials);
+
+      if (!response.data || !response.data.user || !response.data.user.id) {
         throw new Error('Invalid response from server: missing user data');
       }
 
-      const userData = response.data;
-      localStorage.setItem('token', 'dummy-token'); 
+      const userData = response.data.user;
+      localStorage.setItem('token', response.data.accessToken);
       localStorage.setItem('userId', userData.id.toString());
       
       return userData;
@@ -32,6 +31,11 @@ class AuthService {
   }
 
   logout(): void {
+    const token = localStorage.getItem('token');
+    if (token) {
+      // Revoke server-side; the header is set here because the token is removed below
+      api.post('/users/logout', null, { headers: { Authorization: `Bearer ${token}` } }).catch(() => undefined);
+    }
     localStorage.removeItem('token');
     localStorage.removeItem('userId');
   }
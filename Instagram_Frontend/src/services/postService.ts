@@ -1,5 +1,5 @@
 import api from './api';
-import { Post } from '../types';
+import { CursorPage, Post } from '../types';
 
 class PostService {
   async createPost(formData: FormData) {
@@ -43,8 +43,10 @@ class PostService {
     }
   }
 
-  async getAllPosts() {
-    const response = await api.get<Post[]>('/contents/posts');
+  async getPostsPage(cursor?: string, limit: number = 20) {
+    const response = await api.get<CursorPage<Post>>('/contents/posts', {
+      params: { limit, cursor }
+    });
     return response.data;
   }
 
@@ -104,11 +106,11 @@ class PostService {
     await api.delete(`/contents/delete/${postId}`);
   }
 
-  async votePost(postId: number, userId: number, voteType: 'UPVOTE' | 'DOWN_VOTE'): Promise<Post> {
+  // The voter is taken from the access token
+  async votePost(postId: number, voteType: 'UPVOTE' | 'DOWN_VOTE'): Promise<Post> {
     try {
       const response = await api.post<Post>(`/contents/${postId}/vote`, null, {
         params: {
-          userId,
           voteType
         }
       });
@@ -123,13 +125,9 @@ class PostService {
     }
   }
 
-  async removeVote(postId: number, userId: number): Promise<Post> {
+  async removeVote(postId: number): Promise<Post> {
     try {
-      const response = await api.delete<Post>(`/contents/${postId}/vote`, {
-        params: {
-          userId
-        }
-      });
+      const response = await api.delete<Post>(`/contents/${postId}/vote`);
       return response.data;
     } catch (error: any) {
       if (error.response?.status === 401) {
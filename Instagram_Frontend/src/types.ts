@@ -2,7 +2,8 @@ export interface User {
   id: number;
   username: string;
   email: string;
-  profilePicture?: string;
+  avatarUrl?: string;
+  avatarVersion?: string;
   score: number;
 }
 
@@ -16,7 +17,7 @@ export interface Post {
   title: string;
   text: string;
   dateTime?: string;
-  image?: string;
+  imageUrl?: string;
   author: User;
   tags?: Tag[];
   status?: 'JUST_POSTED' | 'FIRST_REACTIONS' | 'OUTDATED';
@@ -25,11 +26,17 @@ export interface Post {
   downvotes?: number;
 }
 
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string | null;
+}
+
 export interface UserData {
   id: number;
   username: string;
   email: string;
-  profilePicture?: string;
+  avatarUrl?: string;
+  avatarVersion?: string;
   score: number;
   bio?: string;
   followers?: number;
@@ -64,3 +71,9 @@ export interface AuthResponse {
   userId: number;
 }
 
+export interface LoginResponse {
+  user: UserData;
+  accessToken: string;
+  expiresAt: number;
+}
+
@@ -1,6 +1,6 @@
 from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel
-from typing import Dict, Any
+from typing import Dict, Any, List, Optional
 import uvicorn
 
 app = FastAPI()
@@ -19,33 +19,41 @@ class Vote(BaseModel):
     authorId: int
 
 class ScoreRequest(BaseModel):
-    vote: Dict[str, Any]
+    vote: Optional[Dict[str, Any]] = None
+    votes: Optional[List[Dict[str, Any]]] = None
 
 class ScoreResponse(BaseModel):
-    score: float
+    score: float = 0.0
+    scores: Optional[List[float]] = None
 
+def score_for(vote: Dict[str, Any]) -> float:
+    content_type = vote["contentType"]
+    vote_type = vote["voteType"]
+
+    score = 0.0
+
+    if vote_type == "UPVOTE":
+        if content_type == "POST":
+            score = POST_UPVOTE_POINTS
+        elif content_type == "COMMENT":
+            score = COMMENT_UPVOTE_POINTS
+    elif vote_type == "DOWN_VOTE":
+        if content_type == "POST":
+            score = POST_DOWNVOTE_POINTS
+        elif content_type == "COMMENT":
+            score = COMMENT_DOWNVOTE_POINTS
+
+    return score
+
+# Accepts a single "vote" or a batch under "votes"; batch scores come back in request order
 @app.post("/calculate", response_model=ScoreResponse)
 async def calculate_score(request: ScoreRequest):
     try:
-        vote = request.vote
-        content_type = vote["contentType"]
-        vote_type = vote["voteType"]
-
-        
-        score = 0.0
-        
-        if vote_type == "UPVOTE":
-            if content_type == "POST":
-                score = POST_UPVOTE_POINTS
-            elif content_type == "COMMENT":
-                score = COMMENT_UPVOTE_POINTS
-        elif vote_type == "DOWN_VOTE":
-            if content_type == "POST":
-                score = POST_DOWNVOTE_POINTS
-            elif content_type == "COMMENT":
-                score = COMMENT_DOWNVOTE_POINTS
-
-        return ScoreResponse(score=score)
+        if request.votes is not None:
+            return ScoreResponse(scores=[score_for(vote) for vote in request.votes])
+        if request.vote is None:
+            raise ValueError("either vote or votes is required")
+        return ScoreResponse(score=score_for(request.vote))
     except Exception as e:
         raise HTTPException(status_code=400, detail=str(e))
 